@@ -0,0 +1,110 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.util.concurrent.Striped;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Replaces files atomically, by writing to a temporary file in the same directory and moving it over the target.
+ * A crash while writing leaves the previous file intact, and readers see either the previous or the new file,
+ * so they never have to wait for a write. Writes to the same path are serialized.
+ */
+final class AtomicFile {
+
+    // paths may share a lock, which only serializes a few unrelated writes
+    private static final Striped<Lock> LOCKS = Striped.lock(64);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static volatile boolean force = true;
+
+    private AtomicFile() {
+
+    }
+
+    /**
+     * @param force Whether written files are forced to the storage device before they replace the target.
+     */
+    static void setForce(boolean force) {
+        AtomicFile.force = force;
+    }
+
+    /**
+     * @return Whether written files are forced to the storage device before they replace the target.
+     */
+    static boolean isForce() {
+        return force;
+    }
+
+    /**
+     * Replaces a file with new contents.
+     *
+     * @param file    The file.
+     * @param content Writes the contents. Closing the stream it receives does not close the file.
+     * @throws IOException If writing fails, in which case the file is unchanged.
+     */
+    static void write(Path file, Content content) throws IOException {
+        var target = file.toAbsolutePath().normalize();
+        var lock = LOCKS.get(target);
+
+        lock.lock();
+        try {
+            var temp = target.resolveSibling(target.getFileName() + "." + Long.toUnsignedString(RANDOM.nextLong(), 36) + ".tmp");
+
+            // unlike Files#createTempFile, this keeps the permissions a new file gets by default
+            var channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+            try {
+                try (channel) {
+                    var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+
+                    content.write(Streams.uncloseable(out));
+                    out.flush();
+
+                    if (force) {
+                        channel.force(true);
+                    }
+                }
+
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                if (force) {
+                    forceDirectory(target.getParent());
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // makes the move durable, which is not supported on every platform
+    private static void forceDirectory(Path directory) {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    @FunctionalInterface
+    interface Content {
+
+        void write(OutputStream out) throws IOException;
+    }
+}
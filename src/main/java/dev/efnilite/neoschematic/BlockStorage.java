@@ -0,0 +1,114 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * Fixed-size storage for the palette indices of a schematic, in the same order as {@link Schematic#getBlocks()}.
+ * Storage other than {@link #heap()} keeps blocks outside the Java heap, so very large schematics
+ * do not add to garbage collection pauses. Pasting and saving behave the same with every storage.
+ *
+ * <pre>{@code
+ * try (var schematic = Schematic.load(file, new JsonSchematic(), BlockStorage.direct())) {
+ *     schematic.paste(location, true);
+ * }
+ * }</pre>
+ */
+public interface BlockStorage extends Closeable {
+
+    /**
+     * @return The amount of blocks.
+     */
+    int size();
+
+    /**
+     * @param index The index of the block.
+     * @return The palette index of the block.
+     */
+    short get(int index);
+
+    /**
+     * @param index The index of the block.
+     * @param id    The palette index of the block.
+     */
+    void set(int index, short id);
+
+    /**
+     * @return The bytes this storage uses on the heap.
+     * Unless a storage reports it exactly, this is an estimate of 2 bytes per block.
+     */
+    default long getHeapBytes() {
+        return 2L * size();
+    }
+
+    /**
+     * @return The bytes this storage uses outside the heap, including memory-mapped files. This is 0 once it is closed.
+     */
+    default long getOffHeapBytes() {
+        return 0;
+    }
+
+    /**
+     * Releases the memory of this storage. The storage must not be used afterwards,
+     * and must not be closed while another thread still uses it. Storage which is not closed is released when it is garbage collected.
+     */
+    @Override
+    void close();
+
+    /**
+     * Creates new {@link BlockStorage} instances.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * @param size The amount of blocks.
+         * @return A new {@link BlockStorage} instance, with every block set to 0.
+         * @throws java.io.UncheckedIOException If the storage is backed by a file which could not be created.
+         */
+        @NotNull
+        BlockStorage allocate(int size);
+
+    }
+
+    /**
+     * @return A factory for storage backed by a {@code short[]} on the heap. This is the default.
+     */
+    @NotNull
+    static Factory heap() {
+        return HeapBlockStorage::new;
+    }
+
+    /**
+     * @return A factory for storage backed by direct memory, outside the heap.
+     * Direct memory is limited by {@code -XX:MaxDirectMemorySize}.
+     */
+    @NotNull
+    static Factory direct() {
+        return BufferBlockStorage::direct;
+    }
+
+    /**
+     * @return A factory for storage backed by a memory-mapped temporary file in the default temporary directory,
+     * so the operating system can page out blocks which are not in use.
+     */
+    @NotNull
+    static Factory mapped() {
+        return mapped(new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param directory The directory to create temporary files in.
+     * @return A factory for storage backed by a memory-mapped temporary file,
+     * so the operating system can page out blocks which are not in use.
+     */
+    @NotNull
+    static Factory mapped(@NotNull File directory) {
+        Preconditions.checkNotNull(directory, "Directory is null");
+
+        return size -> BufferBlockStorage.mapped(size, directory);
+    }
+}
@@ -0,0 +1,62 @@
+package dev.efnilite.neoschematic;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@link java.util.List} view of a {@link BlockStorage}.
+ * Every palette index is boxed at most once, so iterating does not allocate for indices outside of
+ * the cache of {@link Short#valueOf(short)}.
+ */
+final class BlockStorageList extends AbstractList<Short> implements RandomAccess {
+
+    private final BlockStorage storage;
+    // racy, but boxes are immutable and equal, so a lost write only boxes an index twice
+    private final Short[] boxes;
+
+    /**
+     * @param storage     The storage.
+     * @param paletteSize The amount of entries in the palette.
+     */
+    BlockStorageList(BlockStorage storage, int paletteSize) {
+        this.storage = storage;
+        this.boxes = new Short[paletteSize];
+    }
+
+    @Override
+    public Short get(int index) {
+        var id = storage.get(index);
+        if (id < 0 || id >= boxes.length) {
+            return id;
+        }
+
+        var box = boxes[id];
+        if (box == null) {
+            box = id;
+            boxes[id] = box;
+        }
+
+        return box;
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    /**
+     * @return The bytes this view uses on the heap, without the storage.
+     */
+    long getHeapBytes() {
+        var bytes = Memory.object(2 * Memory.REFERENCE) + Memory.array(boxes.length, Memory.REFERENCE);
+
+        // boxes below 128 are shared by Short#valueOf
+        for (int i = 128; i < boxes.length; i++) {
+            if (boxes[i] != null) {
+                bytes += Memory.object(2);
+            }
+        }
+
+        return bytes;
+    }
+}
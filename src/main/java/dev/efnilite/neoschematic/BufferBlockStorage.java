@@ -0,0 +1,119 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link BlockStorage} backed by a direct or memory-mapped {@link ByteBuffer}.
+ * The buffer is freed once it is garbage collected, so a thread which still reads it while the storage
+ * is closed never reads freed memory. Temporary files are deleted when the storage is closed,
+ * or by a {@link Cleaner} when it is garbage collected.
+ */
+final class BufferBlockStorage implements BlockStorage {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int size;
+    private final Cleaner.Cleanable cleanable;
+    private volatile ShortBuffer blocks;
+
+    private BufferBlockStorage(int size, ByteBuffer buffer, Path file) {
+        this.size = size;
+        this.blocks = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+        this.cleanable = CLEANER.register(this, new Release(file));
+    }
+
+    static BufferBlockStorage direct(int size) {
+        checkSize(size);
+
+        return new BufferBlockStorage(size, ByteBuffer.allocateDirect(size * 2), null);
+    }
+
+    static BufferBlockStorage mapped(int size, File directory) {
+        checkSize(size);
+
+        try {
+            var file = Files.createTempFile(directory.toPath(), "neoschematic", ".blocks");
+
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel is closed
+                var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size * 2L);
+
+                return new BufferBlockStorage(size, buffer, file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void checkSize(int size) {
+        Preconditions.checkArgument(size >= 0, "Size must not be negative");
+        Preconditions.checkArgument(size <= Integer.MAX_VALUE / 2, "Size is too large for a buffer");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public short get(int index) {
+        return blocks.get(index);
+    }
+
+    @Override
+    public void set(int index, short id) {
+        blocks.put(index, id);
+    }
+
+    @Override
+    public long getHeapBytes() {
+        // the storage, its cleanable, and the byte and short buffer objects
+        return Memory.object(4 + 2 * Memory.REFERENCE) + Memory.object(4 * Memory.REFERENCE) + 2 * Memory.object(64);
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return blocks == null ? 0 : 2L * size;
+    }
+
+    /**
+     * Drops the buffer and deletes its temporary file. Close must not race with {@link #get(int)} or {@link #set(int, short)}:
+     * a racing call either fails or still uses the buffer, which then stays allocated until that call is done.
+     */
+    @Override
+    public void close() {
+        blocks = null;
+        cleanable.clean();
+    }
+
+    // must not reference the storage, otherwise it is never garbage collected
+    private record Release(Path file) implements Runnable {
+
+        @Override
+        public void run() {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // some platforms do not allow deleting a file which is still mapped
+                    file.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary {@link FileType} for small schematics. The header is stored as is, so {@link #readInfo(File)}
+ * never decompresses the blocks, and the palette and blocks are compressed with a preset dictionary
+ * of common block states. Small schematics are mostly palette, which deflate can barely compress
+ * without a dictionary, so these files are much smaller than {@link ZipSchematic} files.
+ * <p>
+ * The version of the dictionary is stored in the header, so files stay readable when new dictionaries are added.
+ * Since version 3, the {@link Histogram} is stored in the header, so it does not have to be computed after loading,
+ * and {@link #readInfo(File)} returns it after decompressing only the palette. Version 2 stored it after the palette.
+ */
+public class CompactSchematic implements FileType {
+
+    private static final int MAGIC = 0x4E534353; // NSCS
+    private static final int FORMAT_VERSION = 3;
+    private static final int DICTIONARY_VERSION = 1;
+
+    // deflate looks back at most 32 KiB, and matches at the end of the dictionary are the cheapest,
+    // so the most common strings come last. Saved files need these exact bytes, so changes need a new version
+    static final byte[] DICTIONARY_1 = String.join("", List.of(
+            "minecraft:redstone_wire[east=none,north=none,power=0,south=none,west=none]",
+            "minecraft:tripwire[attached=false,disarmed=false,east=false,north=false,powered=false,south=false,west=false]",
+            "minecraft:repeater[delay=1,facing=north,locked=false,powered=false]",
+            "minecraft:comparator[facing=north,mode=compare,powered=false]",
+            "minecraft:piston[extended=false,facing=up]minecraft:sticky_piston[extended=false,facing=up]",
+            "minecraft:observer[facing=north,powered=false]minecraft:hopper[enabled=true,facing=down]",
+            "minecraft:dispenser[facing=north,triggered=false]minecraft:dropper[facing=north,triggered=false]",
+            "minecraft:lever[face=wall,facing=north,powered=false]",
+            "minecraft:stone_button[face=wall,facing=north,powered=false]",
+            "minecraft:oak_button[face=wall,facing=north,powered=false]",
+            "minecraft:stone_pressure_plate[powered=false]minecraft:oak_pressure_plate[powered=false]",
+            "minecraft:tripwire_hook[attached=false,facing=north,powered=false]",
+            "minecraft:redstone_lamp[lit=false]minecraft:redstone_torch[lit=true]",
+            "minecraft:redstone_wall_torch[facing=north,lit=true]",
+            "minecraft:bed[facing=north,occupied=false,part=foot]",
+            "minecraft:red_bed[facing=north,occupied=false,part=head]",
+            "minecraft:sign[rotation=0,waterlogged=false]",
+            "minecraft:oak_wall_sign[facing=north,waterlogged=false]",
+            "minecraft:oak_sign[rotation=0,waterlogged=false]",
+            "minecraft:player_head[rotation=0]minecraft:skeleton_skull[rotation=0]",
+            "minecraft:flower_pot minecraft:potted_poppy minecraft:potted_fern",
+            "minecraft:brewing_stand[has_bottle_0=false,has_bottle_1=false,has_bottle_2=false]",
+            "minecraft:enchanting_table minecraft:bookshelf minecraft:anvil[facing=north]",
+            "minecraft:cauldron minecraft:water_cauldron[level=3]minecraft:jukebox[has_record=false]",
+            "minecraft:beacon minecraft:end_portal_frame[eye=false,facing=north]",
+            "minecraft:bell[attachment=floor,facing=north,powered=false]",
+            "minecraft:campfire[facing=north,lit=true,signal_fire=false,waterlogged=false]",
+            "minecraft:lectern[facing=north,has_book=false,powered=false]",
+            "minecraft:barrel[facing=up,open=false]minecraft:smoker[facing=north,lit=false]",
+            "minecraft:blast_furnace[facing=north,lit=false]minecraft:furnace[facing=north,lit=false]",
+            "minecraft:crafting_table minecraft:smithing_table minecraft:loom[facing=north]",
+            "minecraft:grindstone[face=floor,facing=north]minecraft:stonecutter[facing=north]",
+            "minecraft:cartography_table minecraft:fletching_table minecraft:composter[level=0]",
+            "minecraft:ender_chest[facing=north,waterlogged=false]",
+            "minecraft:trapped_chest[facing=north,type=single,waterlogged=false]",
+            "minecraft:shulker_box[facing=up]",
+            "minecraft:iron_door[facing=north,half=lower,hinge=left,open=false,powered=false]",
+            "minecraft:iron_bars[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:iron_trapdoor[facing=north,half=bottom,open=false,powered=false,waterlogged=false]",
+            "minecraft:spruce_door[facing=north,half=upper,hinge=right,open=false,powered=false]",
+            "minecraft:oak_door[facing=north,half=lower,hinge=left,open=false,powered=false]",
+            "minecraft:spruce_trapdoor[facing=north,half=top,open=false,powered=false,waterlogged=false]",
+            "minecraft:oak_trapdoor[facing=north,half=bottom,open=false,powered=false,waterlogged=false]",
+            "minecraft:spruce_fence_gate[facing=north,in_wall=false,open=false,powered=false]",
+            "minecraft:oak_fence_gate[facing=north,in_wall=false,open=false,powered=false]",
+            "minecraft:ladder[facing=north,waterlogged=false]minecraft:scaffolding[bottom=false,distance=0,waterlogged=false]",
+            "minecraft:vine[east=false,north=false,south=false,up=false,west=false]",
+            "minecraft:chain[axis=y,waterlogged=false]",
+            "minecraft:lantern[hanging=false,waterlogged=false]minecraft:soul_lantern[hanging=true,waterlogged=false]",
+            "minecraft:end_rod[facing=up]minecraft:lightning_rod[facing=up,powered=false,waterlogged=false]",
+            "minecraft:sea_lantern minecraft:glowstone minecraft:shroomlight minecraft:jack_o_lantern[facing=north]",
+            "minecraft:wall_torch[facing=north]minecraft:soul_torch minecraft:soul_wall_torch[facing=north]",
+            "minecraft:candle[candles=1,lit=false,waterlogged=false]",
+            "minecraft:white_carpet minecraft:red_carpet minecraft:gray_carpet minecraft:black_carpet",
+            "minecraft:white_wool minecraft:red_wool minecraft:light_gray_wool minecraft:gray_wool minecraft:black_wool",
+            "minecraft:white_concrete minecraft:light_gray_concrete minecraft:gray_concrete minecraft:black_concrete",
+            "minecraft:red_concrete minecraft:orange_concrete minecraft:yellow_concrete minecraft:lime_concrete",
+            "minecraft:green_concrete minecraft:cyan_concrete minecraft:light_blue_concrete minecraft:blue_concrete",
+            "minecraft:purple_concrete minecraft:magenta_concrete minecraft:pink_concrete minecraft:brown_concrete",
+            "minecraft:white_terracotta minecraft:terracotta minecraft:orange_terracotta minecraft:brown_terracotta",
+            "minecraft:white_stained_glass minecraft:light_blue_stained_glass minecraft:black_stained_glass",
+            "minecraft:white_stained_glass_pane[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:glass_pane[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:tinted_glass minecraft:glass",
+            "minecraft:quartz_block minecraft:smooth_quartz minecraft:quartz_pillar[axis=y]minecraft:chiseled_quartz_block",
+            "minecraft:quartz_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:quartz_slab[type=bottom,waterlogged=false]",
+            "minecraft:prismarine minecraft:prismarine_bricks minecraft:dark_prismarine",
+            "minecraft:purpur_block minecraft:purpur_pillar[axis=y]minecraft:end_stone_bricks minecraft:end_stone",
+            "minecraft:obsidian minecraft:crying_obsidian minecraft:bedrock minecraft:barrier minecraft:light[level=15,waterlogged=false]",
+            "minecraft:netherrack minecraft:nether_bricks minecraft:red_nether_bricks minecraft:soul_sand minecraft:soul_soil",
+            "minecraft:blackstone minecraft:polished_blackstone minecraft:polished_blackstone_bricks minecraft:basalt[axis=y]",
+            "minecraft:magma_block minecraft:lava[level=0]minecraft:ice minecraft:packed_ice minecraft:blue_ice",
+            "minecraft:snow[layers=1]minecraft:snow_block minecraft:powder_snow",
+            "minecraft:sandstone minecraft:cut_sandstone minecraft:smooth_sandstone minecraft:chiseled_sandstone",
+            "minecraft:sandstone_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:sandstone_slab[type=bottom,waterlogged=false]",
+            "minecraft:sandstone_wall[east=none,north=none,south=none,up=true,waterlogged=false,west=none]",
+            "minecraft:red_sand minecraft:sand minecraft:gravel minecraft:clay minecraft:mud minecraft:packed_mud minecraft:mud_bricks",
+            "minecraft:deepslate[axis=y]minecraft:cobbled_deepslate minecraft:polished_deepslate minecraft:deepslate_bricks minecraft:deepslate_tiles",
+            "minecraft:tuff minecraft:calcite minecraft:dripstone_block minecraft:amethyst_block",
+            "minecraft:granite minecraft:polished_granite minecraft:diorite minecraft:polished_diorite",
+            "minecraft:andesite minecraft:polished_andesite",
+            "minecraft:mossy_cobblestone minecraft:mossy_stone_bricks minecraft:cracked_stone_bricks minecraft:chiseled_stone_bricks",
+            "minecraft:cobblestone_wall[east=none,north=none,south=none,up=true,waterlogged=false,west=none]",
+            "minecraft:stone_brick_wall[east=none,north=none,south=none,up=true,waterlogged=false,west=none]",
+            "minecraft:cobblestone_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:stone_brick_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:stone_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:cobblestone_slab[type=bottom,waterlogged=false]",
+            "minecraft:stone_brick_slab[type=bottom,waterlogged=false]",
+            "minecraft:smooth_stone_slab[type=bottom,waterlogged=false]minecraft:smooth_stone",
+            "minecraft:stone_slab[type=bottom,waterlogged=false]",
+            "minecraft:bricks minecraft:brick_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:brick_slab[type=bottom,waterlogged=false]",
+            "minecraft:hay_block[axis=y]minecraft:melon minecraft:pumpkin minecraft:carved_pumpkin[facing=north]",
+            "minecraft:wheat[age=7]minecraft:carrots[age=7]minecraft:potatoes[age=7]minecraft:farmland[moisture=7]",
+            "minecraft:sugar_cane[age=0]minecraft:cactus[age=0]minecraft:bamboo[age=0,leaves=none,stage=0]",
+            "minecraft:lily_pad minecraft:kelp[age=0]minecraft:seagrass minecraft:tall_seagrass[half=lower]",
+            "minecraft:poppy minecraft:dandelion minecraft:cornflower minecraft:azure_bluet minecraft:oxeye_daisy",
+            "minecraft:rose_bush[half=lower]minecraft:lilac[half=upper]minecraft:peony[half=lower]",
+            "minecraft:large_fern[half=lower]minecraft:tall_grass[half=upper]minecraft:tall_grass[half=lower]",
+            "minecraft:fern minecraft:dead_bush minecraft:sweet_berry_bush[age=0]",
+            "minecraft:moss_block minecraft:moss_carpet minecraft:azalea_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:mycelium[snowy=false]minecraft:podzol[snowy=false]minecraft:coarse_dirt minecraft:rooted_dirt",
+            "minecraft:dirt_path minecraft:grass_block[snowy=true]",
+            "minecraft:water[level=0]",
+            "minecraft:jungle_log[axis=y]minecraft:jungle_planks minecraft:jungle_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:acacia_log[axis=y]minecraft:acacia_planks minecraft:acacia_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:mangrove_log[axis=y]minecraft:mangrove_planks minecraft:cherry_log[axis=y]minecraft:cherry_planks",
+            "minecraft:crimson_stem[axis=y]minecraft:crimson_planks minecraft:warped_stem[axis=y]minecraft:warped_planks",
+            "minecraft:bamboo_planks minecraft:bamboo_block[axis=y]",
+            "minecraft:dark_oak_log[axis=y]minecraft:dark_oak_planks minecraft:dark_oak_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:dark_oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:dark_oak_slab[type=bottom,waterlogged=false]",
+            "minecraft:dark_oak_fence[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:birch_log[axis=y]minecraft:birch_planks minecraft:birch_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:birch_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:birch_slab[type=bottom,waterlogged=false]",
+            "minecraft:spruce_log[axis=y]minecraft:spruce_wood[axis=y]minecraft:stripped_spruce_log[axis=y]",
+            "minecraft:spruce_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:spruce_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:spruce_slab[type=bottom,waterlogged=false]",
+            "minecraft:spruce_fence[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:spruce_planks",
+            "minecraft:oak_wood[axis=y]minecraft:stripped_oak_log[axis=y]minecraft:stripped_oak_wood[axis=y]",
+            "minecraft:oak_leaves[distance=7,persistent=true,waterlogged=false]",
+            "minecraft:oak_fence[east=false,north=false,south=false,waterlogged=false,west=false]",
+            "minecraft:oak_slab[type=top,waterlogged=false]minecraft:oak_slab[type=bottom,waterlogged=false]",
+            "minecraft:oak_stairs[facing=east,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:oak_stairs[facing=north,half=top,shape=straight,waterlogged=false]",
+            "minecraft:oak_stairs[facing=south,half=bottom,shape=inner_left,waterlogged=false]",
+            "minecraft:oak_stairs[facing=west,half=bottom,shape=outer_right,waterlogged=false]",
+            "minecraft:oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:oak_log[axis=x]minecraft:oak_log[axis=z]minecraft:oak_log[axis=y]minecraft:oak_planks",
+            "minecraft:chest[facing=north,type=single,waterlogged=false]",
+            "minecraft:torch minecraft:stone_bricks minecraft:cobblestone",
+            "minecraft:short_grass minecraft:grass minecraft:dirt minecraft:grass_block[snowy=false]",
+            "minecraft:cave_air minecraft:stone minecraft:air"
+    )).getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public boolean save(@NotNull Schematic schematic, @NotNull File file) {
+        try {
+            saveOrThrow(schematic, file);
+        } catch (IOException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void saveOrThrow(@NotNull Schematic schematic, @NotNull File file) throws IOException {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(file, "File is null");
+
+        AtomicFile.write(file.toPath(), out -> write(schematic, out));
+    }
+
+    @Override
+    public boolean save(@NotNull Schematic schematic, @NotNull OutputStream out) {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(out, "Stream is null");
+
+        try {
+            write(schematic, out);
+        } catch (IOException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static void write(Schematic schematic, OutputStream stream) throws IOException {
+        var base = new BufferedOutputStream(stream);
+        var header = new DataOutputStream(base);
+        var palette = schematic.getPalette();
+        var size = schematic.getDimensions();
+
+        header.writeInt(MAGIC);
+        header.writeByte(FORMAT_VERSION);
+        header.writeShort(DICTIONARY_VERSION);
+        header.writeInt(schematic.getDataVersion());
+        header.writeUTF(schematic.getMinecraftVersion());
+        header.writeInt(size.getBlockX() - 1);
+        header.writeInt(size.getBlockY() - 1);
+        header.writeInt(size.getBlockZ() - 1);
+        header.writeInt(palette.size());
+        schematic.getIndexedWaypoints().write(header);
+        header.writeLong(schematic.getContentHash());
+        schematic.getHistogram().write(header);
+        header.flush();
+
+        // raw deflate, so the dictionary can be set up front on both ends
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(getDictionary(DICTIONARY_VERSION));
+
+            var compressed = new DeflaterOutputStream(base, deflater, 8192);
+            var body = new DataOutputStream(compressed);
+
+            for (var data : palette) {
+                body.writeUTF(data.getAsString(true));
+            }
+
+            var wide = palette.size() > 256;
+            var count = schematic.getBlocks().size();
+            for (int i = 0; i < count; i++) {
+                var block = schematic.getBlock(i);
+
+                if (wide) {
+                    body.writeShort(block);
+                } else {
+                    body.writeByte(block);
+                }
+            }
+
+            body.flush();
+            compressed.finish();
+        } finally {
+            deflater.end();
+        }
+
+        // the inflater may need a byte after the end of raw deflate data
+        base.write(0);
+        base.flush();
+    }
+
+    @Override
+    @Nullable
+    public Schematic load(@NotNull File file) {
+        return load(file, BlockStorage.heap());
+    }
+
+    @Override
+    @NotNull
+    public Schematic loadOrThrow(@NotNull File file) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        try (var in = new FileInputStream(file)) {
+            return read(in, BlockStorage.heap());
+        }
+    }
+
+    @Override
+    @Nullable
+    public Schematic load(@NotNull File file, @NotNull BlockStorage.Factory storage) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+        Preconditions.checkNotNull(storage, "Storage is null");
+
+        try (var in = new FileInputStream(file)) {
+            return read(in, storage);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    @Nullable
+    public Schematic load(@NotNull InputStream in) {
+        Preconditions.checkNotNull(in, "Stream is null");
+
+        try {
+            return read(in, BlockStorage.heap());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Schematic read(InputStream stream, BlockStorage.Factory storage) throws IOException {
+        var base = new BufferedInputStream(stream);
+        var header = readHeader(new DataInputStream(base));
+
+        var inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(getDictionary(header.dictionaryVersion()));
+            var body = new DataInputStream(new InflaterInputStream(base, inflater, 8192));
+
+            var palette = readPalette(header, body);
+
+            var histogram = header.histogram();
+            if (header.formatVersion() == 2) {
+                histogram = new int[palette.size() * 7];
+                for (int i = 0; i < histogram.length; i++) {
+                    histogram[i] = body.readInt();
+                }
+            }
+
+            var dimensions = header.dimensions();
+            var count = (long) (dimensions.getBlockX() + 1) * (dimensions.getBlockY() + 1) * (dimensions.getBlockZ() + 1);
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException("Schematic is too large");
+            }
+
+            var wide = palette.size() > 256;
+            var blocks = storage.allocate((int) count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    var block = wide ? body.readShort() : (short) body.readUnsignedByte();
+                    if (block < 0 || block >= palette.size()) {
+                        throw new IOException("Invalid palette index");
+                    }
+
+                    blocks.set(i, block);
+                }
+            } catch (IOException | RuntimeException e) {
+                blocks.close();
+                throw e;
+            }
+
+            var schematic = new Schematic(Schematic.DATA_VERSION, Migration.getVersion(header.minecraftVersion()), dimensions,
+                    palette, blocks, header.waypoints());
+            schematic.setHistogram(Histogram.decode(palette, histogram, schematic.getDimensions()));
+            return schematic;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid block data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    @Nullable
+    public SchematicInfo readInfo(@NotNull File file) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            var header = readHeader(in);
+            var dimensions = header.dimensions().clone().add(new Vector(1, 1, 1));
+
+            // the histogram refers to the palette, which is the only part that is decompressed
+            Histogram histogram = null;
+            if (header.histogram() != null) {
+                var inflater = new Inflater(true);
+                try {
+                    inflater.setDictionary(getDictionary(header.dictionaryVersion()));
+                    var palette = readPalette(header, new DataInputStream(new InflaterInputStream(in, inflater, 8192)));
+
+                    histogram = Histogram.decode(palette, header.histogram(), dimensions);
+                } finally {
+                    inflater.end();
+                }
+            }
+
+            return new SchematicInfo(header.dataVersion(), header.minecraftVersion(), dimensions, header.paletteSize(),
+                    Set.copyOf(header.waypoints().getNames()), header.contentHash(), histogram);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static List<BlockData> readPalette(Header header, DataInputStream body) throws IOException {
+        var unparsed = new ArrayList<String>(header.paletteSize());
+        for (int i = 0; i < header.paletteSize(); i++) {
+            unparsed.add(body.readUTF());
+        }
+
+        return Migration.createPalette(header.minecraftVersion(), unparsed);
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a compact schematic");
+        }
+        var formatVersion = in.readUnsignedByte();
+        if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+            throw new IOException("Unsupported format version");
+        }
+
+        var dictionaryVersion = in.readUnsignedShort();
+        var dataVersion = in.readInt();
+        var minecraftVersion = in.readUTF();
+        var dimensions = new Vector(in.readInt(), in.readInt(), in.readInt());
+        var paletteSize = in.readInt();
+
+        Waypoints waypoints;
+        try {
+            waypoints = Waypoints.read(in);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid waypoints", e);
+        }
+        var contentHash = in.readLong();
+
+        if (dimensions.getBlockX() < 0 || dimensions.getBlockY() < 0 || dimensions.getBlockZ() < 0
+                || paletteSize < 0 || paletteSize > Short.MAX_VALUE + 1) {
+            throw new IOException("Invalid header");
+        }
+
+        var histogram = formatVersion >= 3 ? Histogram.read(in, paletteSize) : null;
+
+        return new Header(formatVersion, dictionaryVersion, dataVersion, minecraftVersion, dimensions, paletteSize, waypoints,
+                contentHash, histogram);
+    }
+
+    private static byte[] getDictionary(int version) throws IOException {
+        if (version == 1) {
+            return DICTIONARY_1;
+        }
+
+        throw new IOException("Unknown dictionary version " + version);
+    }
+
+    private record Header(int formatVersion, int dictionaryVersion, int dataVersion, String minecraftVersion, Vector dimensions,
+                          int paletteSize, Waypoints waypoints, long contentHash, int[] histogram) {
+
+    }
+}
@@ -0,0 +1,136 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.util.Vector;
+
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Streaming 64-bit hash in the style of MurmurHash3, used to identify schematic contents.
+ * Shorts are packed four to a word before mixing, so hashing palette indices is cheap.
+ * The result is stable across runs and platforms, so it can be persisted.
+ * <p>
+ * A schematic is hashed as its stored dimensions, then its blocks, then its palette strings.
+ * The palette comes last, so a region can be hashed while it is read and its palette is still growing.
+ */
+final class ContentHash {
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private long hash = 0x9E3779B97F4A7C15L;
+    private long length = 0;
+    private long buffer = 0;
+    private int buffered = 0;
+
+    /**
+     * @param dimensions The dimensions, as stored in a schematic.
+     * @param palette    The palette, as strings.
+     * @param blocks     The blocks.
+     * @return The content hash.
+     */
+    static long of(Vector dimensions, List<String> palette, List<Short> blocks) {
+        var hash = new ContentHash().putDimensions(dimensions);
+
+        for (short block : blocks) {
+            hash.putShort(block);
+        }
+
+        return hash.putPalette(palette).finish();
+    }
+
+    ContentHash putDimensions(Vector dimensions) {
+        return putInt(dimensions.getBlockX()).putInt(dimensions.getBlockY()).putInt(dimensions.getBlockZ());
+    }
+
+    ContentHash putPalette(Collection<String> palette) {
+        putInt(palette.size());
+
+        for (var data : palette) {
+            putString(data);
+        }
+
+        return this;
+    }
+
+    ContentHash putLong(long value) {
+        flush();
+        mix(value);
+        return this;
+    }
+
+    ContentHash putInt(int value) {
+        return putLong(value & 0xFFFFFFFFL);
+    }
+
+    ContentHash putShort(short value) {
+        buffer |= (value & 0xFFFFL) << (buffered << 4);
+
+        if (++buffered == 4) {
+            mix(buffer);
+            buffer = 0;
+            buffered = 0;
+        }
+
+        return this;
+    }
+
+    ContentHash putString(String value) {
+        putInt(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            putShort((short) value.charAt(i));
+        }
+
+        flush();
+        return this;
+    }
+
+    long finish() {
+        flush();
+
+        var h = hash ^ length;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // pads a partial word with its length, so "ab" and "ab\0" differ
+    private void flush() {
+        if (buffered == 0) return;
+
+        mix(buffer ^ ((long) buffered << 60));
+        buffer = 0;
+        buffered = 0;
+    }
+
+    private void mix(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+
+        hash ^= k;
+        hash = Long.rotateLeft(hash, 27) * 5 + 0x52DCE729;
+        length++;
+    }
+
+    /**
+     * @param hash The hash.
+     * @return The hash as 16 lowercase hexadecimal digits.
+     */
+    static String toHex(long hash) {
+        return HexFormat.of().toHexDigits(hash);
+    }
+
+    /**
+     * @param hex The hash as hexadecimal digits.
+     * @return The hash.
+     */
+    static long fromHex(String hex) {
+        return Long.parseUnsignedLong(hex, 16);
+    }
+}
@@ -0,0 +1,75 @@
+package dev.efnilite.neoschematic;
+
+import java.util.Objects;
+
+/**
+ * {@link BlockStorage} which keeps the blocks as they are encoded by {@link JsonSchematic}.
+ * Decoding a block is a single subtraction, so blocks are decoded when they are read instead of when
+ * the schematic is loaded. Loading a schematic only to read its waypoints, or to paste part of it,
+ * then never decodes the blocks which are not used. The first write decodes every block into a
+ * {@link HeapBlockStorage}, which is used from then on.
+ * <p>
+ * Strings with only Latin-1 characters use one byte per character, so schematics with a palette of up to
+ * 188 entries take a single byte per block.
+ */
+final class EncodedBlockStorage implements BlockStorage {
+
+    // once the blocks are decoded, the string is no longer needed
+    private volatile String encoded;
+    private volatile HeapBlockStorage decoded;
+    private volatile long heapBytes = -1;
+
+    EncodedBlockStorage(String encoded) {
+        this.encoded = Objects.requireNonNull(encoded, "Blocks are missing");
+    }
+
+    @Override
+    public int size() {
+        var encoded = this.encoded;
+
+        return encoded != null ? encoded.length() : decoded.size();
+    }
+
+    @Override
+    public short get(int index) {
+        var encoded = this.encoded;
+
+        return encoded != null ? JsonSchematic.decode(encoded.charAt(index)) : decoded.get(index);
+    }
+
+    @Override
+    public void set(int index, short id) {
+        var encoded = this.encoded;
+        if (encoded != null) {
+            var blocks = new short[encoded.length()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = JsonSchematic.decode(encoded.charAt(i));
+            }
+
+            decoded = new HeapBlockStorage(blocks);
+            this.encoded = null;
+        }
+
+        decoded.set(index, id);
+    }
+
+    @Override
+    public long getHeapBytes() {
+        var encoded = this.encoded;
+        if (encoded == null) {
+            return Memory.object(2 * Memory.REFERENCE + 8) + decoded.getHeapBytes();
+        }
+
+        // whether the string has a byte per character is only known after looking at every character
+        if (heapBytes < 0) {
+            heapBytes = Memory.object(2 * Memory.REFERENCE + 8) + Memory.string(encoded);
+        }
+
+        return heapBytes;
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
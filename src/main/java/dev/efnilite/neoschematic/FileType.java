@@ -1,9 +1,15 @@
 package dev.efnilite.neoschematic;
 
+import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 public interface FileType {
 
@@ -15,6 +21,33 @@ public interface FileType {
     */
    boolean save(@NotNull Schematic schematic, @NotNull File file);
 
+   /**
+    * Save the schematic to a file, and throw the reason if it could not be saved.
+    * Implementations should override this to rethrow the original exception,
+    * by default an exception without a cause is thrown if {@link #save(Schematic, File)} fails.
+    * @param schematic The schematic to save
+    * @param file The file to save to
+    * @throws IOException If the schematic could not be saved
+    */
+   default void saveOrThrow(@NotNull Schematic schematic, @NotNull File file) throws IOException {
+      if (!save(schematic, file)) {
+         throw new IOException("Failed to save schematic " + file);
+      }
+   }
+
+   /**
+    * Capture the region between two blocks and save it straight to a file.
+    * Implementations should override this to avoid holding the entire region in memory,
+    * by default a schematic is created first.
+    * @param pos1 The first block
+    * @param pos2 The second block
+    * @param file The file to save to
+    * @return True if the region was saved successfully, false if not
+    */
+   default boolean save(@NotNull Block pos1, @NotNull Block pos2, @NotNull File file) {
+      return save(Schematic.create(pos1, pos2), file);
+   }
+
    /**
     * Load a schematic from a file.
     * @param file The file.
@@ -22,4 +55,120 @@ public interface FileType {
     */
    @Nullable Schematic load(@NotNull File file);
 
+   /**
+    * Load a schematic from a file, and throw the reason if it could not be loaded.
+    * Implementations should override this to rethrow the original exception,
+    * by default an exception without a cause is thrown if {@link #load(File)} fails.
+    * @param file The file.
+    * @return The schematic.
+    * @throws IOException If the schematic could not be loaded.
+    */
+   @NotNull
+   default Schematic loadOrThrow(@NotNull File file) throws IOException {
+      var schematic = load(file);
+      if (schematic == null) {
+         throw new IOException("Failed to load schematic " + file);
+      }
+
+      return schematic;
+   }
+
+   /**
+    * Read the info of a schematic file without decoding its blocks.
+    * Implementations should override this to only read the header,
+    * by default the schematic is loaded into memory first.
+    * @param file The file.
+    * @return The info, or null if the schematic could not be read.
+    */
+   @Nullable
+   default SchematicInfo readInfo(@NotNull File file) {
+      var schematic = load(file);
+
+      return schematic == null ? null : SchematicInfo.of(schematic);
+   }
+
+   /**
+    * Load a schematic from a file, with blocks kept in the specified storage.
+    * Implementations should override this to decode blocks into the storage directly,
+    * by default the schematic is loaded onto the heap and then copied.
+    * @param file The file.
+    * @param storage The factory which allocates the storage for the blocks.
+    * @return The schematic, or null if the schematic could not be loaded.
+    */
+   @Nullable
+   default Schematic load(@NotNull File file, @NotNull BlockStorage.Factory storage) {
+      var schematic = load(file);
+
+      return schematic == null ? null : schematic.withStorage(storage);
+   }
+
+   /**
+    * Open a sequential stream over the blocks of a schematic file.
+    * Implementations should override this to avoid loading the entire schematic,
+    * by default the schematic is loaded into memory first.
+    * @param file The file.
+    * @return The stream, which should be closed after use.
+    * @throws IOException If the file could not be read.
+    */
+   @NotNull
+   default SchematicStream stream(@NotNull File file) throws IOException {
+      var schematic = load(file);
+      if (schematic == null) {
+         throw new IOException("Failed to load schematic " + file);
+      }
+
+      return SchematicStream.of(schematic);
+   }
+
+   /**
+    * Save the schematic to a stream, which is not closed.
+    * Implementations should override this to write to the stream directly,
+    * by default the schematic is saved to a temporary file first.
+    * @param schematic The schematic to save
+    * @param out The stream to write to
+    * @return True if the schematic was saved successfully, false if not
+    */
+   default boolean save(@NotNull Schematic schematic, @NotNull OutputStream out) {
+      File temp = null;
+      try {
+         temp = File.createTempFile("neoschematic", ".tmp");
+         if (!save(schematic, temp)) {
+            return false;
+         }
+
+         Files.copy(temp.toPath(), out);
+         return true;
+      } catch (IOException e) {
+         return false;
+      } finally {
+         if (temp != null) {
+            temp.delete();
+         }
+      }
+   }
+
+   /**
+    * Load a schematic from a stream, which is not closed.
+    * Implementations should override this to read from the stream directly,
+    * by default the stream is copied to a temporary file first.
+    * @param in The stream to read from
+    * @return The schematic, or null if the schematic could not be loaded.
+    */
+   @Nullable
+   default Schematic load(@NotNull InputStream in) {
+      File temp = null;
+      try {
+         temp = File.createTempFile("neoschematic", ".tmp");
+         Files.copy(in, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+         return load(temp);
+      } catch (IOException e) {
+         return null;
+      } finally {
+         if (temp != null) {
+            temp.delete();
+         }
+      }
+   }
+
 }
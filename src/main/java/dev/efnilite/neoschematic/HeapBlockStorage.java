@@ -0,0 +1,43 @@
+package dev.efnilite.neoschematic;
+
+/**
+ * {@link BlockStorage} backed by a {@code short[]}.
+ */
+final class HeapBlockStorage implements BlockStorage {
+
+    private final short[] blocks;
+
+    HeapBlockStorage(int size) {
+        this(new short[size]);
+    }
+
+    // the array is not copied
+    HeapBlockStorage(short[] blocks) {
+        this.blocks = blocks;
+    }
+
+    @Override
+    public int size() {
+        return blocks.length;
+    }
+
+    @Override
+    public short get(int index) {
+        return blocks[index];
+    }
+
+    @Override
+    public void set(int index, short id) {
+        blocks[index] = id;
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return Memory.object(Memory.REFERENCE) + Memory.array(blocks.length, 2);
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
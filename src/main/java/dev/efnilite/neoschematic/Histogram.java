@@ -0,0 +1,329 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The number of blocks of every palette entry of a {@link Schematic}, and the box around them.
+ * Every query takes time proportional to the palette, not the blocks.
+ * Boxes are relative to the minimum corner of the schematic, and contain whole blocks.
+ *
+ * <pre>{@code
+ * var histogram = schematic.getHistogram();
+ * int chests = histogram.getCount(Material.CHEST);
+ * }</pre>
+ *
+ * @see Schematic#getHistogram()
+ */
+public final class Histogram {
+
+    // count, min x, min y, min z, max x, max y, max z
+    private static final int STRIDE = 7;
+
+    private final List<BlockData> palette;
+    private final int[] entries;
+
+    private Histogram(List<BlockData> palette, int[] entries) {
+        this.palette = palette;
+        this.entries = entries;
+    }
+
+    /**
+     * Counts every block of a schematic, without boxing them.
+     *
+     * @param schematic The schematic.
+     * @return The histogram.
+     */
+    static Histogram of(Schematic schematic) {
+        var palette = schematic.getPalette();
+        var size = schematic.getDimensions();
+        var sizeX = size.getBlockX();
+        var sizeY = size.getBlockY();
+        var sizeZ = size.getBlockZ();
+
+        var entries = new int[palette.size() * STRIDE];
+        for (int i = 0; i < palette.size(); i++) {
+            entries[i * STRIDE + 1] = entries[i * STRIDE + 2] = entries[i * STRIDE + 3] = Integer.MAX_VALUE;
+            entries[i * STRIDE + 4] = entries[i * STRIDE + 5] = entries[i * STRIDE + 6] = Integer.MIN_VALUE;
+        }
+
+        var index = 0;
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    var offset = schematic.getBlock(index++) * STRIDE;
+
+                    entries[offset]++;
+                    if (x < entries[offset + 1]) entries[offset + 1] = x;
+                    if (y < entries[offset + 2]) entries[offset + 2] = y;
+                    if (z < entries[offset + 3]) entries[offset + 3] = z;
+                    if (x > entries[offset + 4]) entries[offset + 4] = x;
+                    if (y > entries[offset + 5]) entries[offset + 5] = y;
+                    if (z > entries[offset + 6]) entries[offset + 6] = z;
+                }
+            }
+        }
+
+        return new Histogram(palette, entries);
+    }
+
+    /**
+     * @param palette The palette of the schematic.
+     * @param encoded The histogram, as returned by {@link #encode()}.
+     * @param size    The dimensions of the schematic, like {@link Schematic#getDimensions()}.
+     * @return The histogram, or null if it does not match the palette or the dimensions.
+     */
+    @Nullable
+    static Histogram decode(List<BlockData> palette, int[] encoded, Vector size) {
+        if (encoded == null || encoded.length != palette.size() * STRIDE) {
+            return null;
+        }
+
+        long total = 0;
+        for (int i = 0; i < encoded.length; i += STRIDE) {
+            var count = encoded[i];
+            if (count < 0 || !(count == 0 ? isEmpty(encoded, i) : isInside(encoded, i, size))) {
+                return null;
+            }
+
+            total += count;
+        }
+
+        return total == (long) size.getBlockX() * size.getBlockY() * size.getBlockZ()
+                ? new Histogram(palette, encoded.clone()) : null;
+    }
+
+    // unused entries have the box of Histogram#of
+    private static boolean isEmpty(int[] encoded, int offset) {
+        for (int i = 1; i <= 3; i++) {
+            if (encoded[offset + i] != Integer.MAX_VALUE || encoded[offset + i + 3] != Integer.MIN_VALUE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isInside(int[] encoded, int offset, Vector size) {
+        var sizes = new int[]{size.getBlockX(), size.getBlockY(), size.getBlockZ()};
+        for (int i = 0; i < 3; i++) {
+            var min = encoded[offset + 1 + i];
+            var max = encoded[offset + 4 + i];
+            if (min < 0 || min > max || max >= sizes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the count of every palette entry, and the box of every entry which is used.
+     *
+     * @param out The output.
+     * @throws IOException If writing fails.
+     */
+    void write(DataOutput out) throws IOException {
+        for (int offset = 0; offset < entries.length; offset += STRIDE) {
+            out.writeInt(entries[offset]);
+
+            if (entries[offset] != 0) {
+                for (int i = 1; i < STRIDE; i++) {
+                    out.writeInt(entries[offset + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param in          The input.
+     * @param paletteSize The amount of entries in the palette.
+     * @return The histogram written by {@link #write(DataOutput)}, encoded like {@link #encode()}.
+     * It still has to be checked with {@link #decode(List, int[], Vector)}.
+     * @throws IOException If the histogram could not be read.
+     */
+    static int[] read(DataInput in, int paletteSize) throws IOException {
+        var encoded = new int[paletteSize * STRIDE];
+
+        for (int offset = 0; offset < encoded.length; offset += STRIDE) {
+            var count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Invalid histogram count");
+            }
+
+            encoded[offset] = count;
+            if (count == 0) {
+                encoded[offset + 1] = encoded[offset + 2] = encoded[offset + 3] = Integer.MAX_VALUE;
+                encoded[offset + 4] = encoded[offset + 5] = encoded[offset + 6] = Integer.MIN_VALUE;
+                continue;
+            }
+
+            for (int i = 1; i < STRIDE; i++) {
+                encoded[offset + i] = in.readInt();
+            }
+        }
+
+        return encoded;
+    }
+
+    /**
+     * @return The histogram as 7 integers for every palette entry.
+     */
+    int[] encode() {
+        return entries.clone();
+    }
+
+    /**
+     * @return The bytes this histogram uses on the heap.
+     */
+    long getHeapBytes() {
+        return Memory.object(2 * Memory.REFERENCE) + Memory.array(entries.length, 4);
+    }
+
+    /**
+     * @param index The index of the palette entry.
+     * @return The number of blocks of this palette entry.
+     * @throws IndexOutOfBoundsException If the palette entry does not exist.
+     */
+    public int getCount(int index) {
+        Preconditions.checkElementIndex(index, palette.size());
+
+        return entries[index * STRIDE];
+    }
+
+    /**
+     * @param data The block data.
+     * @return The number of blocks with exactly this block data.
+     */
+    public int getCount(@NotNull BlockData data) {
+        Preconditions.checkNotNull(data, "Block data is null");
+
+        var count = 0;
+        for (int i = 0; i < palette.size(); i++) {
+            if (palette.get(i).equals(data)) {
+                count += entries[i * STRIDE];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param material The material.
+     * @return The number of blocks of this material, with any block data.
+     */
+    public int getCount(@NotNull Material material) {
+        Preconditions.checkNotNull(material, "Material is null");
+
+        var count = 0;
+        for (int i = 0; i < palette.size(); i++) {
+            if (palette.get(i).getMaterial() == material) {
+                count += entries[i * STRIDE];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The number of blocks which are not air, cave air or void air.
+     */
+    public int getNonAirCount() {
+        var count = 0;
+        for (int i = 0; i < palette.size(); i++) {
+            if (!palette.get(i).getMaterial().isAir()) {
+                count += entries[i * STRIDE];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param index The index of the palette entry.
+     * @return The box around every block of this palette entry, or null if it is not used.
+     * @throws IndexOutOfBoundsException If the palette entry does not exist.
+     */
+    @Nullable
+    public BoundingBox getBounds(int index) {
+        Preconditions.checkElementIndex(index, palette.size());
+
+        var offset = index * STRIDE;
+        if (entries[offset] == 0) {
+            return null;
+        }
+
+        return BoundingBox.of(new Vector(entries[offset + 1], entries[offset + 2], entries[offset + 3]),
+                new Vector(entries[offset + 4] + 1, entries[offset + 5] + 1, entries[offset + 6] + 1));
+    }
+
+    /**
+     * @return The box around every block which is not air, or null if the schematic only contains air.
+     */
+    @Nullable
+    public BoundingBox getNonAirBounds() {
+        var minX = Integer.MAX_VALUE;
+        var minY = Integer.MAX_VALUE;
+        var minZ = Integer.MAX_VALUE;
+        var maxX = Integer.MIN_VALUE;
+        var maxY = Integer.MIN_VALUE;
+        var maxZ = Integer.MIN_VALUE;
+
+        for (int i = 0; i < palette.size(); i++) {
+            var offset = i * STRIDE;
+            if (entries[offset] == 0 || palette.get(i).getMaterial().isAir()) {
+                continue;
+            }
+
+            minX = Math.min(minX, entries[offset + 1]);
+            minY = Math.min(minY, entries[offset + 2]);
+            minZ = Math.min(minZ, entries[offset + 3]);
+            maxX = Math.max(maxX, entries[offset + 4]);
+            maxY = Math.max(maxY, entries[offset + 5]);
+            maxZ = Math.max(maxZ, entries[offset + 6]);
+        }
+
+        if (minX > maxX) {
+            return null;
+        }
+
+        return BoundingBox.of(new Vector(minX, minY, minZ), new Vector(maxX + 1, maxY + 1, maxZ + 1));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+
+        var other = (Histogram) obj;
+        return palette.equals(other.palette) && Arrays.equals(entries, other.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * palette.hashCode() + Arrays.hashCode(entries);
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("Histogram[");
+        for (int i = 0; i < palette.size(); i++) {
+            if (i > 0) builder.append(", ");
+
+            builder.append(palette.get(i).getAsString(true)).append('=').append(entries[i * STRIDE]);
+        }
+
+        return builder.append(']').toString();
+    }
+}
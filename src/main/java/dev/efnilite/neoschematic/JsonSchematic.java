@@ -4,17 +4,24 @@ import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Default {@link Schematic} implementation.
@@ -24,7 +31,8 @@ import java.util.stream.Collectors;
 public class JsonSchematic implements FileType {
 
     private static final int START = '#';
-    private int currentChar = START - 1;
+    private static final int CONTROL_START = 0x7F;
+    private static final int CONTROL_COUNT = 0x9F - CONTROL_START + 1;
 
     static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
@@ -32,9 +40,6 @@ public class JsonSchematic implements FileType {
             .excludeFieldsWithoutExposeAnnotation()
             .create();
 
-    private final Map<Short, String> chars = new HashMap<>();
-    private final Map<Character, Short> controls = new HashMap<>();
-
     @Expose
     private int dataVersion;
     @Expose
@@ -43,10 +48,13 @@ public class JsonSchematic implements FileType {
     private List<Integer> dimensions;
     @Expose
     private List<String> palette;
-    @Expose
-    private String blocks;
+    // everything before the blocks is read by readInfo without scanning over the blocks
     @Expose
     private Map<String, List<String>> waypoints;
+    @Expose
+    private String contentHash;
+    @Expose
+    private String blocks;
 
     public JsonSchematic() {
 
@@ -80,104 +88,366 @@ public class JsonSchematic implements FileType {
 
     @Override
     public boolean save(@NotNull Schematic schematic, @NotNull File file) {
+        try {
+            saveOrThrow(schematic, file);
+        } catch (IOException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void saveOrThrow(@NotNull Schematic schematic, @NotNull File file) throws IOException {
         Preconditions.checkNotNull(schematic, "Schematic is null");
         Preconditions.checkNotNull(file, "File is null");
 
+        AtomicFile.write(file.toPath(), out -> write(out, serialize(schematic)));
+    }
+
+    @Override
+    public boolean save(@NotNull Schematic schematic, @NotNull OutputStream out) {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(out, "Stream is null");
+
+        try {
+            write(Streams.uncloseable(out), serialize(schematic));
+        } catch (IOException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static JsonSchematic serialize(Schematic schematic) {
         var dimensionVector = schematic.getDimensions().subtract(new Vector(1, 1, 1));
         var dimensions = List.of(dimensionVector.getBlockX(), dimensionVector.getBlockY(), dimensionVector.getBlockZ());
         var palette = schematic.getPalette().stream().map(it -> it.getAsString(true)).toList();
-        var serializedBlocks = String.join("", schematic.getBlocks().stream().map(this::getChar).toList());
-        var waypoints = schematic.getWaypoints().entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream()
-                        .map(it -> it.getX() + "," + it.getY() + "," + it.getZ() + "," + it.getYaw() + "," + it.getPitch()).toList()));
+        var blocks = schematic.getBlocks();
+        var serializedBlocks = new StringBuilder(blocks.size());
+        for (short block : blocks) {
+            serializedBlocks.append(encode(block));
+        }
+        var waypoints = serializeWaypoints(schematic.getIndexedWaypoints());
 
         var jsonSchematic = new JsonSchematic(schematic.getDataVersion(), schematic.getMinecraftVersion(),
-                dimensions, palette, serializedBlocks, waypoints);
+                dimensions, palette, serializedBlocks.toString(), waypoints);
+        jsonSchematic.contentHash = ContentHash.toHex(schematic.getContentHash());
+
+        return jsonSchematic;
+    }
+
+    // closes the stream
+    void write(OutputStream out, JsonSchematic type) throws IOException {
+        try (var writer = writer(out)) {
+            GSON.toJson(type, writer);
+
+            writer.flush();
+        }
+    }
+
+    Writer writer(OutputStream out) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(out));
+    }
+
+    @Override
+    public boolean save(@NotNull Block pos1, @NotNull Block pos2, @NotNull File file) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(pos1.getWorld() == pos2.getWorld(), "Blocks must be in the same world");
+
+        var min = Vector.getMinimum(pos1.getLocation().toVector(), pos2.getLocation().toVector());
+        var max = Vector.getMaximum(pos1.getLocation().toVector(), pos2.getLocation().toVector());
+        var dimensions = max.clone().subtract(min);
 
+        File spool = null;
         try {
-            write(file, jsonSchematic);
+            // blocks are spooled to disk, since the palette has to be written before them
+            spool = File.createTempFile("neoschematic", ".blocks", file.getAbsoluteFile().getParentFile());
+
+            var palette = new LinkedHashMap<BlockData, Short>();
+            var hash = new ContentHash().putDimensions(dimensions);
+            try (var writer = Files.newBufferedWriter(spool.toPath(), StandardCharsets.UTF_8)) {
+                var exception = new IOException[1];
+
+                new RegionReader(pos1.getWorld(), min, max).forEach(data -> {
+                    if (exception[0] != null) return;
+
+                    var id = palette.computeIfAbsent(data, it -> (short) palette.size());
+                    hash.putShort(id);
+                    try {
+                        writeEscaped(writer, encode(id));
+                    } catch (IOException e) {
+                        exception[0] = e;
+                    }
+                });
+
+                if (exception[0] != null) {
+                    throw exception[0];
+                }
+            }
+
+            var blocks = spool.toPath();
+            AtomicFile.write(file.toPath(), out -> {
+                try (var writer = writer(out);
+                     var reader = Files.newBufferedReader(blocks, StandardCharsets.UTF_8)) {
+                    var paletteStrings = palette.keySet().stream().map(it -> it.getAsString(true)).toList();
+                    var json = GSON.newJsonWriter(writer);
+
+                    json.beginObject();
+                    json.name("dataVersion").value(Schematic.DATA_VERSION);
+                    json.name("minecraftVersion").value(Bukkit.getBukkitVersion().split("-")[0]);
+                    json.name("dimensions").beginArray()
+                            .value(dimensions.getBlockX())
+                            .value(dimensions.getBlockY())
+                            .value(dimensions.getBlockZ())
+                            .endArray();
+                    json.name("palette").beginArray();
+                    for (var data : paletteStrings) {
+                        json.value(data);
+                    }
+                    json.endArray();
+                    json.name("waypoints").beginObject().endObject();
+                    json.name("contentHash").value(ContentHash.toHex(hash.putPalette(paletteStrings).finish()));
+
+                    // the spooled blocks are escaped already, so they are copied between the quotes of the value
+                    json.name("blocks").jsonValue("\"");
+                    reader.transferTo(writer);
+                    writer.write('"');
+                    json.endObject();
+                    json.flush();
+                }
+            });
         } catch (IOException e) {
             return false;
+        } finally {
+            if (spool != null) {
+                spool.delete();
+            }
         }
 
         return true;
     }
 
-    void write(File file, JsonSchematic type) throws IOException {
-        try (var writer = new BufferedWriter(new FileWriter(file))) {
-            GSON.toJson(type, writer);
-
-            writer.flush();
+    private static void writeEscaped(Writer writer, char c) throws IOException {
+        if (c == '\\') {
+            writer.write('\\');
         }
+
+        writer.write(c);
     }
 
     @Override
     @Nullable
     public Schematic load(@NotNull File file) {
+        try {
+            return loadOrThrow(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Schematic loadOrThrow(@NotNull File file) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        return deserialize(read(new FileInputStream(file)), null);
+    }
+
+    @Override
+    @Nullable
+    public Schematic load(@NotNull File file, @NotNull BlockStorage.Factory storage) {
         Preconditions.checkNotNull(file, "File is null");
         Preconditions.checkArgument(file.exists(), "File does not exist");
+        Preconditions.checkNotNull(storage, "Storage is null");
 
         try {
-            var serialized = read(file);
-
-            var dataVersion = serialized.dataVersion;
-            var mcVersion = serialized.minecraftVersion;
-            var unparsedPalette = serialized.palette;
-
-            var palette = unparsedPalette.stream().map(Bukkit::createBlockData).toList();
-            var dimensions = new Vector(serialized.dimensions.get(0),
-                    serialized.dimensions.get(1),
-                    serialized.dimensions.get(2));
-            var blocks = serialized.blocks.chars().mapToObj(c -> fromChar((char) c)).toList();
-
-            var waypoints = new HashMap<String, List<Location>>();
-            if (dataVersion >= 2) {
-                serialized.waypoints.forEach((key, locations) ->
-                        waypoints.put(key, locations.stream()
-                                .map(it -> it.split(","))
-                                .map(it -> new Location(null, Double.parseDouble(it[0]),
-                                        Double.parseDouble(it[1]),
-                                        Double.parseDouble(it[2]),
-                                        Float.parseFloat(it[3]),
-                                        Float.parseFloat(it[4])))
-                                .toList()));
-            }
+            return deserialize(read(new FileInputStream(file)), storage);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-            return new Schematic(Schematic.DATA_VERSION, mcVersion, dimensions,
-                    palette, blocks, waypoints);
+    @Override
+    @Nullable
+    public Schematic load(@NotNull InputStream in) {
+        Preconditions.checkNotNull(in, "Stream is null");
+
+        try {
+            return deserialize(read(Streams.uncloseable(in)), null);
         } catch (IOException e) {
             return null;
         }
     }
 
-    JsonSchematic read(File file) throws IOException {
-        try (var reader = new BufferedReader(new FileReader(file))) {
-            return GSON.fromJson(reader, JsonSchematic.class);
+    // without a storage, blocks are only decoded when they are read
+    private Schematic deserialize(JsonSchematic serialized, @Nullable BlockStorage.Factory storage) {
+        var dataVersion = serialized.dataVersion;
+        var mcVersion = Migration.getVersion(serialized.minecraftVersion);
+        var palette = Migration.createPalette(serialized.minecraftVersion, serialized.palette);
+        var dimensions = new Vector(serialized.dimensions.get(0),
+                serialized.dimensions.get(1),
+                serialized.dimensions.get(2));
+
+        var waypoints = dataVersion >= 2
+                ? deserializeWaypoints(serialized.waypoints)
+                : Waypoints.empty();
+
+        if (storage == null) {
+            return new Schematic(Schematic.DATA_VERSION, mcVersion, dimensions,
+                    palette, new EncodedBlockStorage(serialized.blocks), waypoints);
+        }
+
+        var encoded = serialized.blocks;
+        var blocks = storage.allocate(encoded.length());
+        for (int i = 0; i < encoded.length(); i++) {
+            blocks.set(i, decode(encoded.charAt(i)));
         }
+
+        return new Schematic(Schematic.DATA_VERSION, mcVersion, dimensions,
+                palette, blocks, waypoints);
     }
 
-    // avoids control chars
-    String getChar(short id) {
-        return chars.computeIfAbsent(id, it -> {
-            do {
-                currentChar++;
-            } while (Character.isISOControl(currentChar));
+    static Map<String, List<String>> serializeWaypoints(Waypoints waypoints) {
+        return waypoints.getNames().stream()
+                .collect(Collectors.toMap(name -> name, name -> IntStream.range(0, waypoints.size(name))
+                        .mapToObj(i -> waypoints.getX(name, i) + "," + waypoints.getY(name, i) + "," + waypoints.getZ(name, i)
+                                + "," + waypoints.getYaw(name, i) + "," + waypoints.getPitch(name, i))
+                        .toList()));
+    }
+
+    static Waypoints deserializeWaypoints(Map<String, List<String>> serialized) {
+        var waypoints = new Waypoints.Builder();
+
+        serialized.forEach((key, locations) -> {
+            waypoints.add(key);
 
-            return Character.toString(currentChar);
+            for (var location : locations) {
+                var it = location.split(",");
+
+                waypoints.add(key, Double.parseDouble(it[0]),
+                        Double.parseDouble(it[1]),
+                        Double.parseDouble(it[2]),
+                        Float.parseFloat(it[3]),
+                        Float.parseFloat(it[4]));
+            }
         });
+
+        return waypoints.build();
     }
 
-    short fromChar(char c) {
-        return controls.computeIfAbsent(c, it -> {
-            var controlSince = 0;
+    // closes the stream
+    JsonSchematic read(InputStream in) throws IOException {
+        try (var reader = reader(in)) {
+            return GSON.fromJson(reader, JsonSchematic.class);
+        }
+    }
+
+    @Override
+    @Nullable
+    public SchematicInfo readInfo(@NotNull File file) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        var dataVersion = 0;
+        var minecraftVersion = "";
+        var dimensions = new Vector();
+        var paletteSize = 0;
+        var waypoints = new HashSet<String>();
+        var contentHash = 0L;
+        var hashed = false;
+        var indexed = false;
 
-            for (var i = START; i < c; i++) {
-                if (Character.isISOControl(i)) {
-                    controlSince++;
+        // skipValue does not create strings, so the blocks are scanned over without being decoded,
+        // which is only needed for files that were saved with the waypoints or hash after the blocks
+        try (var reader = new JsonReader(reader(file))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                var name = reader.nextName();
+                if (name.equals("blocks") && hashed && indexed) {
+                    break;
+                }
+
+                switch (name) {
+                    case "dataVersion" -> dataVersion = reader.nextInt();
+                    case "minecraftVersion" -> minecraftVersion = reader.nextString();
+                    case "dimensions" -> {
+                        reader.beginArray();
+                        dimensions = new Vector(reader.nextInt() + 1, reader.nextInt() + 1, reader.nextInt() + 1);
+                        reader.endArray();
+                    }
+                    case "palette" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.skipValue();
+                            paletteSize++;
+                        }
+                        reader.endArray();
+                    }
+                    case "waypoints" -> {
+                        indexed = true;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            waypoints.add(reader.nextName());
+                            reader.skipValue();
+                        }
+                        reader.endObject();
+                    }
+                    case "contentHash" -> {
+                        hashed = true;
+                        contentHash = ContentHash.fromHex(reader.nextString());
+                    }
+                    default -> reader.skipValue();
                 }
             }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return null;
+        }
 
-            return (short) (c - START - controlSince);
-        });
+        return new SchematicInfo(dataVersion, minecraftVersion, dimensions, paletteSize, waypoints, contentHash);
+    }
+
+    Reader reader(InputStream in) throws IOException {
+        return new BufferedReader(new InputStreamReader(in));
+    }
+
+    Reader reader(File file) throws IOException {
+        return reader(new FileInputStream(file));
+    }
+
+    @Override
+    @NotNull
+    public SchematicStream stream(@NotNull File file) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        var reader = reader(file);
+        try {
+            return new JsonSchematicStream(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    String getChar(short id) {
+        return Character.toString(encode(id));
+    }
+
+    // avoids control chars
+    static char encode(short id) {
+        var c = START + id;
+
+        return (char) (c < CONTROL_START ? c : c + CONTROL_COUNT);
+    }
+
+    short fromChar(char c) {
+        return decode(c);
+    }
+
+    // the only control chars after START are 0x7F-0x9F, so these can be skipped without a lookup
+    static short decode(char c) {
+        return (short) (c < CONTROL_START ? c - START : c - START - CONTROL_COUNT);
     }
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package dev.efnilite.neoschematic;
+
+import com.google.gson.reflect.TypeToken;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SchematicStream} over a {@link JsonSchematic} file.
+ * Every value before {@code blocks} is read as header, after which the blocks string is decoded
+ * one character at a time. Anything after the blocks is never read.
+ */
+final class JsonSchematicStream implements SchematicStream {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+
+    private final int dataVersion;
+    private final String minecraftVersion;
+    private final Vector dimensions;
+    private final List<BlockData> palette;
+
+    private boolean ended = false;
+
+    JsonSchematicStream(Reader reader) throws IOException {
+        this.reader = reader;
+
+        var header = readHeader();
+        if (!header.containsKey("dimensions") || !header.containsKey("palette")) {
+            throw new IOException("Dimensions and palette must precede blocks");
+        }
+
+        var gson = JsonSchematic.GSON;
+        List<Integer> dimensions = gson.fromJson(header.get("dimensions"), new TypeToken<List<Integer>>() {}.getType());
+        List<String> palette = gson.fromJson(header.get("palette"), new TypeToken<List<String>>() {}.getType());
+
+        this.dataVersion = header.containsKey("dataVersion") ? gson.fromJson(header.get("dataVersion"), int.class) : 0;
+        var minecraftVersion = header.containsKey("minecraftVersion")
+                ? gson.fromJson(header.get("minecraftVersion"), String.class) : "";
+        this.minecraftVersion = Migration.getVersion(minecraftVersion);
+        this.dimensions = new Vector(dimensions.get(0) + 1, dimensions.get(1) + 1, dimensions.get(2) + 1);
+        this.palette = Migration.createPalette(minecraftVersion, palette);
+    }
+
+    // reads every raw value until the blocks string starts
+    private Map<String, String> readHeader() throws IOException {
+        var header = new HashMap<String, String>();
+
+        expect('{');
+        while (true) {
+            expect('"');
+            var key = readString();
+            expect(':');
+
+            if (key.equals("blocks")) {
+                expect('"');
+                return header;
+            }
+
+            header.put(key, readRawValue());
+
+            var c = nextNonWhitespace();
+            if (c == '}') {
+                throw new IOException("No blocks found");
+            } else if (c != ',') {
+                throw new IOException("Expected ',' but found '" + (char) c + "'");
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        var builder = new StringBuilder();
+
+        int c;
+        while ((c = readChar()) != '"') {
+            builder.append((char) (c == '\\' ? readEscape() : c));
+        }
+
+        return builder.toString();
+    }
+
+    // copies a value verbatim until the next ',' or '}' on the same depth
+    private String readRawValue() throws IOException {
+        var builder = new StringBuilder();
+        var depth = 0;
+        var string = false;
+
+        skipWhitespace();
+        while (true) {
+            var c = peek();
+
+            if (string) {
+                readChar();
+                builder.append((char) c);
+
+                if (c == '\\') {
+                    builder.append((char) readChar());
+                } else if (c == '"') {
+                    string = false;
+                }
+                continue;
+            }
+
+            if (depth == 0 && (c == ',' || c == '}')) {
+                return builder.toString();
+            }
+
+            readChar();
+            builder.append((char) c);
+
+            switch (c) {
+                case '"' -> string = true;
+                case '[', '{' -> depth++;
+                case ']', '}' -> depth--;
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        var c = readChar();
+
+        return switch (c) {
+            case 'u' -> {
+                var value = 0;
+                for (int i = 0; i < 4; i++) {
+                    var digit = Character.digit(readChar(), 16);
+                    if (digit < 0) {
+                        throw new IOException("Invalid unicode escape");
+                    }
+                    value = value * 16 + digit;
+                }
+                yield (char) value;
+            }
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            default -> (char) c;
+        };
+    }
+
+    private void expect(char expected) throws IOException {
+        var c = nextNonWhitespace();
+
+        if (c != expected) {
+            throw new IOException("Expected '" + expected + "' but found '" + (char) c + "'");
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        skipWhitespace();
+        return readChar();
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (Character.isWhitespace(peek())) {
+            readChar();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            throw new IOException("Unexpected end of file");
+        }
+
+        return buffer[position];
+    }
+
+    private int readChar() throws IOException {
+        var c = peek();
+        position++;
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getDataVersion() {
+        return dataVersion;
+    }
+
+    @Override
+    public @NotNull String getMinecraftVersion() {
+        return minecraftVersion;
+    }
+
+    @Override
+    public @NotNull Vector getDimensions() {
+        return dimensions.clone();
+    }
+
+    @Override
+    public @NotNull List<BlockData> getPalette() {
+        return palette;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (ended) return false;
+
+        if (peek() == '"') {
+            ended = true;
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public short next() throws IOException {
+        if (!hasNext()) {
+            throw new IOException("No more blocks");
+        }
+
+        var c = readChar();
+
+        return JsonSchematic.decode(c == '\\' ? readEscape() : (char) c);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,177 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A paste which places the part of a schematic in a chunk only when that chunk is needed:
+ * when it loads, or when a player comes near it while it is loaded.
+ * Which chunks are done is tracked in a bitset, so every chunk is pasted at most once.
+ *
+ * @see Schematic#pasteLazily(org.bukkit.Location, PasteOptions, int, Plugin)
+ */
+public final class LazyPaste implements Listener {
+
+    private static final long CHECK_INTERVAL = 10;
+
+    private final Schematic schematic;
+    private final Block origin;
+    private final World world;
+    private final PasteOptions options;
+    private final int radius;
+    private final Plugin plugin;
+
+    private final int minChunkX, minChunkZ;
+    private final int chunksX, chunksZ;
+    private final BitSet done;
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    private BukkitTask task;
+    private long placed = 0;
+
+    LazyPaste(Schematic schematic, Block origin, PasteOptions options, int radius, Plugin plugin) {
+        Preconditions.checkArgument(radius >= 0, "Radius must not be negative");
+
+        this.schematic = schematic;
+        this.origin = origin;
+        this.world = origin.getWorld();
+        this.options = options;
+        this.radius = radius;
+        this.plugin = plugin;
+
+        var dimensions = schematic.getDimensions();
+        this.minChunkX = origin.getX() >> 4;
+        this.minChunkZ = origin.getZ() >> 4;
+        this.chunksX = ((origin.getX() + dimensions.getBlockX() - 1) >> 4) - minChunkX + 1;
+        this.chunksZ = ((origin.getZ() + dimensions.getBlockZ() - 1) >> 4) - minChunkZ + 1;
+        this.done = new BitSet(chunksX * chunksZ);
+    }
+
+    void start() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::check, 0, CHECK_INTERVAL);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (event.getWorld() != world) return;
+
+        paste(event.getChunk().getX(), event.getChunk().getZ());
+    }
+
+    // pastes loaded chunks near players
+    private void check() {
+        var chunkRadius = (radius + 15) >> 4;
+
+        for (var player : world.getPlayers()) {
+            var location = player.getLocation();
+            var playerChunkX = location.getBlockX() >> 4;
+            var playerChunkZ = location.getBlockZ() >> 4;
+
+            var fromX = Math.max(minChunkX, playerChunkX - chunkRadius);
+            var toX = Math.min(minChunkX + chunksX - 1, playerChunkX + chunkRadius);
+            var fromZ = Math.max(minChunkZ, playerChunkZ - chunkRadius);
+            var toZ = Math.min(minChunkZ + chunksZ - 1, playerChunkZ + chunkRadius);
+
+            for (int chunkX = fromX; chunkX <= toX; chunkX++) {
+                for (int chunkZ = fromZ; chunkZ <= toZ; chunkZ++) {
+                    if (world.isChunkLoaded(chunkX, chunkZ)) {
+                        paste(chunkX, chunkZ);
+                    }
+                }
+            }
+        }
+    }
+
+    private void paste(int chunkX, int chunkZ) {
+        if (future.isDone()) return;
+
+        var x = chunkX - minChunkX;
+        var z = chunkZ - minChunkZ;
+        if (x < 0 || x >= chunksX || z < 0 || z >= chunksZ) return;
+
+        var idx = x * chunksZ + z;
+        if (done.get(idx)) return;
+        done.set(idx);
+
+        var box = new BoundingBox(chunkX << 4, world.getMinHeight(), chunkZ << 4,
+                (chunkX << 4) + 16, world.getMaxHeight(), (chunkZ << 4) + 16);
+        var clip = options.getClip();
+        if (clip == null || clip.overlaps(box)) {
+            var cursor = new PasteCursor(SchematicStream.of(schematic), origin,
+                    options.withClip(clip == null ? box : box.intersection(clip)));
+
+            try {
+                while (!cursor.isDone()) {
+                    cursor.place(Integer.MAX_VALUE);
+                }
+            } catch (IOException e) {
+                stop();
+                future.completeExceptionally(e);
+                return;
+            }
+
+            placed += cursor.getPlaced();
+        }
+
+        if (done.cardinality() == chunksX * chunksZ) {
+            stop();
+            future.complete(placed);
+        }
+    }
+
+    /**
+     * Stops pasting. Chunks which have not been pasted yet are left as they are.
+     */
+    public void cancel() {
+        stop();
+        future.completeExceptionally(new CancellationException("Lazy paste was cancelled"));
+    }
+
+    private void stop() {
+        HandlerList.unregisterAll(this);
+
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * @return The amount of chunks which have been pasted.
+     */
+    public int getPastedChunks() {
+        return done.cardinality();
+    }
+
+    /**
+     * @return The amount of chunks which the schematic covers.
+     */
+    public int getTotalChunks() {
+        return chunksX * chunksZ;
+    }
+
+    /**
+     * @return A {@link CompletableFuture}. When every chunk has been pasted,
+     * the amount of blocks which have been placed is returned.
+     */
+    @NotNull
+    public CompletableFuture<Long> getFuture() {
+        return future;
+    }
+}
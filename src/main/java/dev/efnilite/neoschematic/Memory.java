@@ -0,0 +1,86 @@
+package dev.efnilite.neoschematic;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sizes of objects on the heap, assuming a 64-bit JVM with compressed references, which is the default
+ * for heaps below 32 GB, and keeps track of the schematics which are tracked until they are garbage collected.
+ */
+final class Memory {
+
+    static final int OBJECT_HEADER = 12;
+    static final int REFERENCE = 4;
+    static final int ARRAY_HEADER = 16;
+
+    // a schematic is only referenced by its entry, so entries of collected schematics can be removed
+    private static final Set<WeakReference<Schematic>> SCHEMATICS = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<Schematic> COLLECTED = new ReferenceQueue<>();
+
+    private Memory() {
+
+    }
+
+    /**
+     * @param fields The total size of the fields of the object.
+     * @return The size of an object.
+     */
+    static long object(long fields) {
+        return align(OBJECT_HEADER + fields);
+    }
+
+    /**
+     * @param length      The length of the array.
+     * @param elementSize The size of an element.
+     * @return The size of an array.
+     */
+    static long array(long length, int elementSize) {
+        return align(ARRAY_HEADER + length * elementSize);
+    }
+
+    /**
+     * @param string The string.
+     * @param latin1 Whether the string only contains Latin-1 characters, which are stored in one byte.
+     * @return The size of a string, including its array.
+     */
+    static long string(String string, boolean latin1) {
+        return object(REFERENCE + 4 + 1 + 1) + array(string.length(), latin1 ? 1 : 2);
+    }
+
+    /**
+     * @param string The string.
+     * @return The size of a string, including its array.
+     */
+    static long string(String string) {
+        return string(string, string.chars().allMatch(c -> c <= 0xFF));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static void track(Schematic schematic) {
+        WeakReference<?> collected;
+        while ((collected = (WeakReference<?>) COLLECTED.poll()) != null) {
+            SCHEMATICS.remove(collected);
+        }
+
+        SCHEMATICS.add(new WeakReference<>(schematic, COLLECTED));
+    }
+
+    static Schematic.MemoryUsage total() {
+        var total = new Schematic.MemoryUsage(0, 0, 0, 0, 0);
+
+        for (var reference : SCHEMATICS) {
+            var schematic = reference.get();
+
+            if (schematic != null) {
+                total = total.add(schematic.getMemoryUsage());
+            }
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,176 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the palette of a schematic which was saved on an older Minecraft version,
+ * for blocks which have been renamed or whose states have changed since.
+ * <p>
+ * Only palette strings are rewritten, so migrating takes time proportional to the palette, not the blocks.
+ * Every step that applies between two versions is chained into one table, which is cached by source version,
+ * and every table remembers the strings it has already translated.
+ */
+final class Migration {
+
+    private static final String CURRENT_VERSION = Bukkit.getBukkitVersion().split("-")[0];
+
+    private static final List<Step> STEPS = List.of(
+            // wall sides changed from booleans to heights
+            new Step("1.16", state -> replaceProperties(state, "_wall", Map.of(
+                    "east=true", "east=low", "east=false", "east=none",
+                    "north=true", "north=low", "north=false", "north=none",
+                    "south=true", "south=low", "south=false", "south=none",
+                    "west=true", "west=low", "west=false", "west=none"))),
+            new Step("1.17", rename(Map.of("minecraft:grass_path", "minecraft:dirt_path"))),
+            new Step("1.20.3", rename(Map.of("minecraft:grass", "minecraft:short_grass"))),
+            new Step("1.21.9", rename(Map.of("minecraft:chain", "minecraft:iron_chain")))
+    );
+
+    private static final Pattern PROPERTY = Pattern.compile("[a-z_]+=[a-z0-9_]+");
+    private static final Map<String, Table> TABLES = new ConcurrentHashMap<>();
+
+    private Migration() {
+
+    }
+
+    /**
+     * @param minecraftVersion The Minecraft version the palette was saved on.
+     * @param palette          The block state strings.
+     * @return The block data of every palette entry, migrated to the current version.
+     */
+    static List<BlockData> createPalette(String minecraftVersion, List<String> palette) {
+        var table = getTable(minecraftVersion);
+        if (table == null) {
+            return palette.stream().map(Bukkit::createBlockData).toList();
+        }
+
+        return palette.stream().map(table::translate).map(Bukkit::createBlockData).toList();
+    }
+
+    /**
+     * @param minecraftVersion The Minecraft version the palette was saved on.
+     * @return The version of the palette after {@link #createPalette(String, List)}.
+     */
+    static String getVersion(String minecraftVersion) {
+        return getTable(minecraftVersion) == null ? minecraftVersion : CURRENT_VERSION;
+    }
+
+    // null if nothing has to be migrated, or if either version is unknown
+    private static Table getTable(String minecraftVersion) {
+        if (minecraftVersion == null || minecraftVersion.equals(CURRENT_VERSION)) {
+            return null;
+        }
+
+        var table = TABLES.computeIfAbsent(minecraftVersion, Migration::compile);
+        return table.steps == null ? null : table;
+    }
+
+    private static Table compile(String minecraftVersion) {
+        var from = parse(minecraftVersion);
+        var to = parse(CURRENT_VERSION);
+        if (from == null || to == null || compare(from, to) >= 0) {
+            return new Table(null);
+        }
+
+        var steps = new ArrayList<UnaryOperator<String>>();
+        for (var step : STEPS) {
+            var version = parse(step.version);
+
+            if (compare(version, from) > 0 && compare(version, to) <= 0) {
+                steps.add(step.operator);
+            }
+        }
+
+        return new Table(steps.isEmpty() ? null : steps);
+    }
+
+    // renames the block, keeping its states
+    private static UnaryOperator<String> rename(Map<String, String> names) {
+        return state -> {
+            var bracket = state.indexOf('[');
+            var name = bracket < 0 ? state : state.substring(0, bracket);
+            var renamed = names.get(name);
+
+            return renamed == null ? state : renamed + state.substring(name.length());
+        };
+    }
+
+    private static String replaceProperties(String state, String suffix, Map<String, String> properties) {
+        var bracket = state.indexOf('[');
+        if (bracket < 0 || !state.substring(0, bracket).endsWith(suffix)) {
+            return state;
+        }
+
+        var matcher = PROPERTY.matcher(state);
+        matcher.region(bracket, state.length());
+
+        return matcher.replaceAll(result -> properties.getOrDefault(result.group(), result.group()));
+    }
+
+    private static int[] parse(String version) {
+        var parts = version.split("\\.");
+        var parsed = new int[parts.length];
+
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parsed[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return parsed;
+    }
+
+    // missing parts count as 0, so 1.20 is the same as 1.20.0
+    private static int compare(int[] first, int[] second) {
+        for (int i = 0; i < Math.max(first.length, second.length); i++) {
+            var a = i < first.length ? first[i] : 0;
+            var b = i < second.length ? second[i] : 0;
+
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param version  The version which introduced the change.
+     * @param operator Rewrites a block state string which was saved before the version.
+     */
+    private record Step(String version, UnaryOperator<String> operator) {
+
+    }
+
+    private static final class Table {
+
+        private final List<UnaryOperator<String>> steps;
+        private final Map<String, String> translated = new HashMap<>();
+
+        private Table(List<UnaryOperator<String>> steps) {
+            this.steps = steps;
+        }
+
+        private synchronized String translate(String state) {
+            return translated.computeIfAbsent(state, it -> {
+                var result = it;
+                for (var step : steps) {
+                    result = step.apply(result);
+                }
+
+                return result;
+            });
+        }
+    }
+}
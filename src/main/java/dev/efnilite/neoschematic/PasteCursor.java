@@ -0,0 +1,183 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally places the blocks of a {@link SchematicStream}, so a paste can be spread over multiple ticks.
+ * Blocks are read in the same order as {@link Schematic#paste(Block, boolean)} places them.
+ * If the options have a clip, only blocks inside it are visited and the rest of the stream is skipped.
+ */
+final class PasteCursor {
+
+    private final SchematicStream stream;
+    private final PasteOptions options;
+    private final Consumer<Block> consumer;
+    private final World world;
+    private final List<BlockData> palette;
+    private final boolean[] air;
+
+    private final int originX, originY, originZ;
+    private final int sizeY, sizeZ;
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+    private int x, y, z;
+    private long position = 0;
+
+    private long placed = 0;
+    private boolean done;
+
+    /**
+     * @param stream   The stream to read from.
+     * @param origin   The block to paste the schematic at.
+     * @param options  The {@link PasteOptions}.
+     * @param consumer The consumer which receives every placed block, or null.
+     */
+    PasteCursor(SchematicStream stream, Block origin, PasteOptions options, @Nullable Consumer<Block> consumer) {
+        this.stream = stream;
+        this.options = options;
+        this.consumer = consumer;
+        this.world = origin.getWorld();
+        this.palette = stream.getPalette();
+
+        // avoid calling getMaterial for every block
+        this.air = new boolean[palette.size()];
+        for (int i = 0; i < palette.size(); i++) {
+            air[i] = palette.get(i).getMaterial().isAir();
+        }
+
+        var dimensions = stream.getDimensions();
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+        this.sizeY = dimensions.getBlockY();
+        this.sizeZ = dimensions.getBlockZ();
+
+        var minX = originX;
+        var minY = originY;
+        var minZ = originZ;
+        var maxX = originX + dimensions.getBlockX() - 1;
+        var maxY = originY + sizeY - 1;
+        var maxZ = originZ + sizeZ - 1;
+
+        // a block is inside the clip if its center is
+        var clip = options.getClip();
+        if (clip != null) {
+            minX = Math.max(minX, (int) Math.ceil(clip.getMinX() - 0.5));
+            minY = Math.max(minY, (int) Math.ceil(clip.getMinY() - 0.5));
+            minZ = Math.max(minZ, (int) Math.ceil(clip.getMinZ() - 0.5));
+            maxX = Math.min(maxX, (int) Math.ceil(clip.getMaxX() - 0.5) - 1);
+            maxY = Math.min(maxY, (int) Math.ceil(clip.getMaxY() - 0.5) - 1);
+            maxZ = Math.min(maxZ, (int) Math.ceil(clip.getMaxZ() - 0.5) - 1);
+        }
+
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.x = minX;
+        this.y = minY;
+        this.z = minZ;
+        this.done = minX > maxX || minY > maxY || minZ > maxZ;
+    }
+
+    PasteCursor(SchematicStream stream, Block origin, PasteOptions options) {
+        this(stream, origin, options, null);
+    }
+
+    /**
+     * Reads at most {@code max} blocks inside the clip and places them.
+     *
+     * @param max The maximum amount of blocks to read.
+     * @return The amount of blocks which have been placed.
+     * @throws IOException If reading from the stream fails.
+     */
+    int place(int max) throws IOException {
+        return place(max, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads at most {@code max} blocks inside the clip and places them,
+     * without reading more than {@code readable} blocks from the stream, including skipped blocks.
+     *
+     * @param max      The maximum amount of blocks to read.
+     * @param readable The maximum amount of blocks to read or skip from the stream.
+     * @return The amount of blocks which have been placed.
+     * @throws IOException If reading from the stream fails.
+     */
+    int place(int max, long readable) throws IOException {
+        var count = 0;
+        var end = readable == Long.MAX_VALUE ? Long.MAX_VALUE : position + readable;
+
+        for (int i = 0; i < max && !done; i++) {
+            var target = target();
+            if (target >= end) break;
+
+            if (target > position) {
+                stream.skip(target - position);
+                position = target;
+            }
+
+            var id = stream.next();
+            position++;
+
+            if (!options.isSkipAir() || !air[id]) {
+                var block = world.getBlockAt(x, y, z);
+                block.setBlockData(palette.get(id));
+                if (consumer != null) {
+                    consumer.accept(block);
+                }
+
+                count++;
+            }
+
+            advance();
+        }
+
+        placed += count;
+        return count;
+    }
+
+    /**
+     * @return The amount of blocks which have to be read or skipped from the stream to place the next block.
+     */
+    long getRequired() {
+        return done ? 0 : target() - position + 1;
+    }
+
+    // the position in the stream of the block at the cursor
+    private long target() {
+        return ((long) (x - originX) * sizeY + (y - originY)) * sizeZ + (z - originZ);
+    }
+
+    private void advance() {
+        if (++z <= maxZ) return;
+        z = minZ;
+        if (++y <= maxY) return;
+        y = minY;
+        if (++x <= maxX) return;
+        done = true;
+    }
+
+    /**
+     * @return The total amount of blocks which have been placed.
+     */
+    long getPlaced() {
+        return placed;
+    }
+
+    /**
+     * @return True if every block inside the clip has been read.
+     */
+    boolean isDone() {
+        return done;
+    }
+}
@@ -0,0 +1,100 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable set of options which determine how a schematic is pasted.
+ * Every {@code with} method returns a new instance.
+ *
+ * <pre>{@code
+ * var options = PasteOptions.defaults().withSkipAir(true).withBlocksPerTick(10_000);
+ * }</pre>
+ */
+public final class PasteOptions {
+
+    private static final PasteOptions DEFAULTS = new PasteOptions(false, 5_000, null);
+
+    private final boolean skipAir;
+    private final int blocksPerTick;
+    private final BoundingBox clip;
+
+    private PasteOptions(boolean skipAir, int blocksPerTick, BoundingBox clip) {
+        this.skipAir = skipAir;
+        this.blocksPerTick = blocksPerTick;
+        this.clip = clip;
+    }
+
+    /**
+     * @return The default options: air is pasted and 5000 blocks are placed per tick.
+     */
+    @NotNull
+    public static PasteOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param skipAir Whether air blocks in the schematic should be skipped.
+     * @return A new {@link PasteOptions} instance.
+     */
+    @NotNull
+    public PasteOptions withSkipAir(boolean skipAir) {
+        return new PasteOptions(skipAir, blocksPerTick, clip);
+    }
+
+    /**
+     * @param blocksPerTick The maximum amount of blocks to place per tick when pasting over multiple ticks.
+     * @return A new {@link PasteOptions} instance.
+     * @throws IllegalArgumentException If blocksPerTick is not positive.
+     */
+    @NotNull
+    public PasteOptions withBlocksPerTick(int blocksPerTick) {
+        Preconditions.checkArgument(blocksPerTick > 0, "Blocks per tick must be positive");
+
+        return new PasteOptions(skipAir, blocksPerTick, clip);
+    }
+
+    /**
+     * Limits pasting to the blocks inside a box, in world coordinates. A block is inside if its center is,
+     * so {@code BoundingBox.of(block1, block2)} includes both blocks.
+     *
+     * @param clip The box, or null to paste every block.
+     * @return A new {@link PasteOptions} instance.
+     */
+    @NotNull
+    public PasteOptions withClip(@Nullable BoundingBox clip) {
+        return new PasteOptions(skipAir, blocksPerTick, clip == null ? null : clip.clone());
+    }
+
+    /**
+     * @return Whether air blocks in the schematic are skipped.
+     */
+    public boolean isSkipAir() {
+        return skipAir;
+    }
+
+    /**
+     * @return The maximum amount of blocks to place per tick when pasting over multiple ticks.
+     */
+    public int getBlocksPerTick() {
+        return blocksPerTick;
+    }
+
+    /**
+     * @return The box which pasting is limited to, or null if every block is pasted.
+     */
+    @Nullable
+    public BoundingBox getClip() {
+        return clip == null ? null : clip.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "PasteOptions[" +
+                "skipAir=" + skipAir + ", " +
+                "blocksPerTick=" + blocksPerTick + ", " +
+                "clip=" + clip + ']';
+    }
+}
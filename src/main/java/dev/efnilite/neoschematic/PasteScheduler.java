@@ -0,0 +1,262 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Owns every pending paste and spreads them over ticks on the main thread, so many pastes at the same time
+ * do not fight over the tick. Every tick, jobs take turns in round-robin order, where each turn places a
+ * number of blocks proportional to the priority of the job, until the time budget of the tick is used up.
+ * <p>
+ * The time budget adapts to the measured tick duration: it shrinks when ticks take longer than 50 ms,
+ * and slowly grows back while the server keeps up.
+ * A single instance should be shared by everything in a plugin which pastes.
+ * A scheduler is not thread-safe, so every method must be called on the main thread.
+ *
+ * <pre>{@code
+ * var scheduler = new PasteScheduler(plugin);
+ * scheduler.submit(schematic, location, PasteOptions.defaults(), PasteScheduler.NORMAL_PRIORITY)
+ *         .thenAccept(placed -> player.sendMessage("Arena ready"));
+ * }</pre>
+ */
+public final class PasteScheduler {
+
+    public static final int LOW_PRIORITY = 1;
+    public static final int NORMAL_PRIORITY = 4;
+    public static final int HIGH_PRIORITY = 16;
+
+    private static final long TICK_NANOS = 50_000_000;
+    private static final int BLOCKS_PER_WEIGHT = 128;
+
+    private final Plugin plugin;
+    private final List<Job> jobs = new ArrayList<>();
+    private BukkitTask task;
+    private int next = 0;
+
+    private long minBudgetNanos = 1_000_000;
+    private long maxBudgetNanos = 25_000_000;
+    private long budgetNanos = 10_000_000;
+    private long lastTick = 0;
+    private long lastTickNanos = 0;
+
+    private long placed = 0;
+    private long completed = 0;
+    private long started = 0;
+    private long totalWaitNanos = 0;
+    private long workNanos = 0;
+
+    /**
+     * @param plugin The plugin which the repeating task is registered to.
+     */
+    public PasteScheduler(@NotNull Plugin plugin) {
+        Preconditions.checkNotNull(plugin, "Plugin is null");
+
+        this.plugin = plugin;
+    }
+
+    /**
+     * Queues an in-memory schematic to be pasted. Must be called on the main thread.
+     *
+     * @param schematic The schematic.
+     * @param location  The location to paste the schematic at.
+     * @param options   The {@link PasteOptions}. {@link PasteOptions#getBlocksPerTick()} is ignored,
+     *                  since the scheduler decides how many blocks are placed.
+     * @param priority  The priority, which is the relative amount of blocks this job places per turn. Must be positive.
+     * @return A {@link CompletableFuture}. When completed, the amount of blocks which have been placed is returned.
+     */
+    @NotNull
+    public CompletableFuture<Long> submit(@NotNull Schematic schematic, @NotNull Location location,
+                                          @NotNull PasteOptions options, int priority) {
+        checkMainThread();
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+
+        return submit(new PasteTask(() -> SchematicStream.of(schematic), location.getBlock(), options), priority);
+    }
+
+    /**
+     * Queues a schematic file to be streamed and pasted, like
+     * {@link Schematic#pasteFromFile(File, FileType, Location, PasteOptions)}. Must be called on the main thread.
+     * The file is opened and read ahead on the {@link Schematic#getDefaultExecutor() default executor},
+     * so a job only gets turns once blocks have been read.
+     *
+     * @param file     The file to read.
+     * @param type     The {@link FileType} instance.
+     * @param location The location to paste the schematic at.
+     * @param options  The {@link PasteOptions}. {@link PasteOptions#getBlocksPerTick()} is ignored,
+     *                 since the scheduler decides how many blocks are placed.
+     * @param priority The priority, which is the relative amount of blocks this job places per turn. Must be positive.
+     * @return A {@link CompletableFuture}. When completed, the amount of blocks which have been placed is returned.
+     * If the file could not be read, the future is completed exceptionally.
+     */
+    @NotNull
+    public CompletableFuture<Long> submit(@NotNull File file, @NotNull FileType type, @NotNull Location location,
+                                          @NotNull PasteOptions options, int priority) {
+        checkMainThread();
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkNotNull(type, "File type is null");
+
+        return submit(new PasteTask(() -> type.stream(file), location.getBlock(), options, Schematic.getDefaultExecutor()),
+                priority);
+    }
+
+    private CompletableFuture<Long> submit(PasteTask paste, int priority) {
+        Preconditions.checkArgument(priority > 0, "Priority must be positive");
+
+        jobs.add(new Job(paste, priority, System.nanoTime()));
+
+        if (task == null) {
+            lastTick = 0;
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+        }
+
+        return paste.getFuture();
+    }
+
+    private static void checkMainThread() {
+        Preconditions.checkState(Bukkit.isPrimaryThread(), "Paste scheduler must be used on the main thread");
+    }
+
+    // package-private so tests can run ticks without waiting for the server
+    void tick() {
+        var start = System.nanoTime();
+        adapt(start);
+
+        var deadline = start + budgetNanos;
+        // stops early when every job is waiting for its file, instead of spinning until the deadline
+        var waiting = 0;
+        while (!jobs.isEmpty() && waiting < jobs.size() && System.nanoTime() < deadline) {
+            if (next >= jobs.size()) next = 0;
+
+            var job = jobs.get(next);
+            var turn = System.nanoTime();
+
+            var before = job.paste.getPlaced();
+            var done = job.paste.step(job.priority * BLOCKS_PER_WEIGHT);
+            placed += job.paste.getPlaced() - before;
+
+            if (job.firstTurn == 0 && !job.paste.isWaiting()) {
+                job.firstTurn = turn;
+                started++;
+                totalWaitNanos += job.firstTurn - job.submitted;
+            }
+
+            if (done) {
+                jobs.remove(next);
+                completed++;
+                waiting = 0;
+            } else {
+                next++;
+                waiting = job.paste.isWaiting() ? waiting + 1 : 0;
+            }
+        }
+
+        lastTickNanos = System.nanoTime() - start;
+        workNanos += lastTickNanos;
+
+        if (jobs.isEmpty()) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    // shrinks the budget quickly when ticks are too long, and grows it slowly when there is time left
+    private void adapt(long now) {
+        if (lastTick != 0) {
+            var interval = now - lastTick;
+
+            if (interval > TICK_NANOS + TICK_NANOS / 10) {
+                budgetNanos = Math.max(minBudgetNanos, budgetNanos * 3 / 4);
+            } else if (interval <= TICK_NANOS + TICK_NANOS / 50) {
+                budgetNanos = Math.min(maxBudgetNanos, budgetNanos + 250_000);
+            }
+        }
+
+        lastTick = now;
+    }
+
+    /**
+     * Sets the range of time the scheduler may spend pasting every tick.
+     *
+     * @param minMillis The minimum time per tick, which is used even when the server is lagging.
+     * @param maxMillis The maximum time per tick.
+     */
+    public void setBudget(double minMillis, double maxMillis) {
+        checkMainThread();
+        Preconditions.checkArgument(minMillis > 0 && maxMillis >= minMillis, "Invalid budget range");
+
+        this.minBudgetNanos = (long) (minMillis * 1_000_000);
+        this.maxBudgetNanos = (long) (maxMillis * 1_000_000);
+        this.budgetNanos = Math.max(minBudgetNanos, Math.min(maxBudgetNanos, budgetNanos));
+    }
+
+    /**
+     * Cancels every pending paste. Their futures are completed with a {@link CancellationException}.
+     */
+    public void cancelAll() {
+        checkMainThread();
+        var exception = new CancellationException("Paste scheduler was cancelled");
+
+        jobs.forEach(job -> job.paste.cancel(exception));
+        jobs.clear();
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * @return The current statistics of this scheduler.
+     */
+    @NotNull
+    public Stats getStats() {
+        checkMainThread();
+        return new Stats(jobs.size(),
+                started == 0 ? 0 : totalWaitNanos / started / 1_000_000.0,
+                workNanos == 0 ? 0 : placed * 1_000_000_000.0 / workNanos,
+                budgetNanos / 1_000_000.0,
+                lastTickNanos / 1_000_000.0,
+                placed,
+                completed);
+    }
+
+    /**
+     * Statistics of a {@link PasteScheduler}.
+     *
+     * @param queueDepth         The amount of jobs which have not finished yet.
+     * @param averageWaitMillis  The average time between submitting a job and its first placed block.
+     * @param blocksPerSecond    The amount of blocks placed per second of time spent pasting.
+     * @param budgetMillis       The current time budget per tick.
+     * @param lastTickMillis     The time spent pasting during the last tick.
+     * @param totalBlocks        The total amount of blocks placed.
+     * @param completedJobs      The total amount of jobs which have finished or failed.
+     */
+    public record Stats(int queueDepth, double averageWaitMillis, double blocksPerSecond, double budgetMillis,
+                        double lastTickMillis, long totalBlocks, long completedJobs) {
+
+    }
+
+    private static final class Job {
+
+        private final PasteTask paste;
+        private final int priority;
+        private final long submitted;
+        private long firstTurn = 0;
+
+        private Job(PasteTask paste, int priority, long submitted) {
+            this.paste = paste;
+            this.priority = priority;
+            this.submitted = submitted;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.block.Block;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Repeating task which places at most {@link PasteOptions#getBlocksPerTick()} blocks every tick.
+ * With a reader, the stream is opened and its blocks are read ahead on the reader through a {@link PrefetchStream},
+ * and a tick only places the blocks which have been read, so the main thread does not wait for the file.
+ * Without a reader, the stream is opened on the first run on the main thread, which suits streams over memory.
+ */
+final class PasteTask implements Consumer<BukkitTask> {
+
+    private final Callable<SchematicStream> opener;
+    private final Block origin;
+    private final PasteOptions options;
+    private final Executor reader;
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+    private CompletableFuture<SchematicStream> opening;
+    private SchematicStream stream;
+    private PasteCursor cursor;
+    private boolean waiting = false;
+
+    PasteTask(Callable<SchematicStream> opener, Block origin, PasteOptions options) {
+        this(opener, origin, options, null);
+    }
+
+    /**
+     * @param opener  Opens the stream.
+     * @param origin  The block to paste the schematic at.
+     * @param options The {@link PasteOptions}.
+     * @param reader  The executor to open and read the stream on, or null to do both on the main thread.
+     */
+    PasteTask(Callable<SchematicStream> opener, Block origin, PasteOptions options, @Nullable Executor reader) {
+        this.opener = opener;
+        this.origin = origin;
+        this.options = options;
+        this.reader = reader;
+    }
+
+    @Override
+    public void accept(BukkitTask task) {
+        if (step(options.getBlocksPerTick())) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Reads and places at most {@code max} blocks. When the paste is done or fails, the future is completed.
+     *
+     * @param max The maximum amount of blocks to read.
+     * @return True if the paste is done or has failed.
+     */
+    boolean step(int max) {
+        if (future.isDone()) return true;
+
+        try {
+            waiting = false;
+            if (cursor == null) {
+                var stream = open();
+                if (stream == null) {
+                    waiting = true;
+                    return false;
+                }
+
+                this.stream = stream;
+                cursor = new PasteCursor(stream, origin, options);
+            }
+
+            // only reads and skips blocks which have already been read, so the main thread never waits for the file
+            var readable = Long.MAX_VALUE;
+            if (stream instanceof PrefetchStream prefetch) {
+                readable = prefetch.ready();
+                if (readable < cursor.getRequired()) {
+                    waiting = true;
+                    return false;
+                }
+            }
+
+            cursor.place(max, readable);
+
+            if (cursor.isDone()) {
+                close();
+                future.complete(cursor.getPlaced());
+                return true;
+            }
+
+            return false;
+        } catch (Exception e) {
+            close();
+            future.completeExceptionally(e);
+            return true;
+        }
+    }
+
+    // the stream, or null while it is being opened on the reader
+    private SchematicStream open() throws Exception {
+        if (reader == null) {
+            return opener.call();
+        }
+
+        if (opening == null) {
+            opening = new CompletableFuture<>();
+            reader.execute(() -> {
+                try {
+                    opening.complete(new PrefetchStream(opener.call(), reader));
+                } catch (Throwable throwable) {
+                    opening.completeExceptionally(throwable);
+                }
+            });
+        }
+
+        if (!opening.isDone()) {
+            return null;
+        }
+
+        try {
+            return opening.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception exception ? exception : e;
+        }
+    }
+
+    /**
+     * Stops the paste and completes the future exceptionally.
+     *
+     * @param cause The reason.
+     */
+    void cancel(Throwable cause) {
+        close();
+        future.completeExceptionally(cause);
+    }
+
+    private void close() {
+        if (stream == null) {
+            // a stream which is still being opened is closed once it is open
+            if (opening != null) {
+                opening.thenAccept(opened -> {
+                    try {
+                        opened.close();
+                    } catch (IOException ignored) {
+
+                    }
+                });
+            }
+
+            return;
+        }
+
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    /**
+     * @return True if the last step placed nothing, since it was waiting for the stream to be opened or read.
+     */
+    boolean isWaiting() {
+        return waiting;
+    }
+
+    long getPlaced() {
+        return cursor == null ? 0 : cursor.getPlaced();
+    }
+
+    CompletableFuture<Long> getFuture() {
+        return future;
+    }
+}
@@ -0,0 +1,29 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A schematic placed at a specific origin, which is where the minimum corner of the schematic ends up.
+ *
+ * @param schematic The schematic.
+ * @param origin    The block position of the minimum corner.
+ */
+public record Placement(@NotNull Schematic schematic, @NotNull Vector origin) {
+
+    public Placement {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(origin, "Origin is null");
+
+        origin = new Vector(origin.getBlockX(), origin.getBlockY(), origin.getBlockZ());
+    }
+
+    /**
+     * @return The block position of the maximum corner, inclusive.
+     */
+    @NotNull
+    public Vector max() {
+        return origin.clone().add(schematic.getDimensions()).subtract(new Vector(1, 1, 1));
+    }
+}
@@ -0,0 +1,173 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link SchematicStream} which reads the blocks of another stream in batches on an executor,
+ * so the next batch is read from the file while the current one is pasted. Only one batch is read at a time,
+ * so the underlying stream is never used by two threads at once.
+ */
+final class PrefetchStream implements SchematicStream {
+
+    private static final int BATCH = 16 * 1024;
+
+    private final SchematicStream stream;
+    private final Executor executor;
+
+    private short[] batch = new short[0];
+    private int index = 0;
+    // the batch which is being read, or null once the last batch has been taken
+    private CompletableFuture<short[]> pending;
+
+    /**
+     * @param stream   The stream to read from, which is closed when this stream is closed.
+     * @param executor The executor to read batches on.
+     */
+    PrefetchStream(SchematicStream stream, Executor executor) {
+        this.stream = stream;
+        this.executor = executor;
+        this.pending = read();
+    }
+
+    private CompletableFuture<short[]> read() {
+        var future = new CompletableFuture<short[]>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    var blocks = new short[BATCH];
+                    var count = 0;
+                    while (count < BATCH && stream.hasNext()) {
+                        blocks[count++] = stream.next();
+                    }
+
+                    future.complete(count == BATCH ? blocks : Arrays.copyOf(blocks, count));
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    // waits for the pending batch, and starts reading the one after it
+    private void take() throws IOException {
+        try {
+            batch = pending.join();
+        } catch (CompletionException e) {
+            pending = null;
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+
+        index = 0;
+        pending = batch.length < BATCH ? null : read();
+    }
+
+    /**
+     * @return The amount of blocks which can be read without waiting for the executor.
+     * This is {@link Integer#MAX_VALUE} once reading has ended or failed, since reading then never waits.
+     */
+    int ready() {
+        var pending = this.pending;
+        if (pending == null || pending.isCompletedExceptionally()) {
+            return Integer.MAX_VALUE;
+        }
+
+        var ready = batch.length - index;
+        if (!pending.isDone()) {
+            return ready;
+        }
+
+        var next = pending.join().length;
+        return next == 0 ? Integer.MAX_VALUE : ready + next;
+    }
+
+    @Override
+    public int getDataVersion() {
+        return stream.getDataVersion();
+    }
+
+    @Override
+    public @NotNull String getMinecraftVersion() {
+        return stream.getMinecraftVersion();
+    }
+
+    @Override
+    public @NotNull Vector getDimensions() {
+        return stream.getDimensions();
+    }
+
+    @Override
+    public @NotNull List<BlockData> getPalette() {
+        return stream.getPalette();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (index < batch.length) {
+            return true;
+        }
+        if (pending == null) {
+            return false;
+        }
+
+        take();
+        return index < batch.length;
+    }
+
+    @Override
+    public short next() throws IOException {
+        if (!hasNext()) {
+            throw new EOFException("No more blocks");
+        }
+
+        return batch[index++];
+    }
+
+    @Override
+    public void skip(long count) throws IOException {
+        while (count > 0) {
+            if (!hasNext()) {
+                throw new EOFException("No more blocks");
+            }
+
+            var skipped = (int) Math.min(count, batch.length - index);
+            index += skipped;
+            count -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        var pending = this.pending;
+        this.pending = null;
+
+        if (pending == null) {
+            stream.close();
+            return;
+        }
+
+        // the stream may still be read by the executor
+        pending.whenComplete((blocks, throwable) -> {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+
+            }
+        });
+    }
+}
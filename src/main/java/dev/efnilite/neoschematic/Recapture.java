@@ -0,0 +1,229 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Captures a region again, reusing the blocks of a previous capture for every chunk section which has not changed.
+ * <p>
+ * Each 16x16x16 chunk section inside the region gets a fingerprint, which is a 64-bit hash of the block state strings
+ * of its blocks. The fingerprints of the previous schematic are computed from its palette and blocks and cached on it,
+ * and the fingerprints of the world are computed from {@link ChunkSnapshot}s, where empty sections are not read at all.
+ * Unchanged sections are copied from the previous schematic without looking up any block data,
+ * and since the new palette starts out as the previous palette, their indices are copied as they are.
+ */
+final class Recapture {
+
+    private static final long SEED = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+
+    private Recapture() {
+
+    }
+
+    /**
+     * The fingerprints of a schematic, for a specific alignment to chunk sections.
+     *
+     * @param alignX The x coordinate of the minimum corner, modulo 16.
+     * @param alignY The y coordinate of the minimum corner, modulo 16.
+     * @param alignZ The z coordinate of the minimum corner, modulo 16.
+     * @param values The fingerprint of every section, ordered like blocks.
+     */
+    record Fingerprints(int alignX, int alignY, int alignZ, long[] values) {
+
+    }
+
+    /**
+     * Must be called on the main thread.
+     *
+     * @param previous The previous capture of the region.
+     * @param world    The world.
+     * @param min      The minimum block position, inclusive.
+     * @param max      The maximum block position, inclusive.
+     * @return The new capture, which is {@code previous} itself if nothing has changed,
+     * or null if the region does not have the same dimensions as {@code previous}.
+     */
+    static Schematic recapture(Schematic previous, World world, Vector min, Vector max) {
+        var size = max.clone().subtract(min).add(new Vector(1, 1, 1));
+        if (!size.equals(previous.getDimensions())) {
+            return null;
+        }
+
+        var minX = min.getBlockX();
+        var minY = min.getBlockY();
+        var minZ = min.getBlockZ();
+        var maxX = max.getBlockX();
+        var maxY = max.getBlockY();
+        var maxZ = max.getBlockZ();
+        var sizeY = size.getBlockY();
+        var sizeZ = size.getBlockZ();
+
+        var old = getFingerprints(previous, minX & 15, minY & 15, minZ & 15);
+        var values = new long[old.values().length];
+
+        var palette = new ArrayList<>(previous.getPalette());
+        var indices = new HashMap<BlockData, Short>();
+        for (int i = palette.size() - 1; i >= 0; i--) {
+            indices.put(palette.get(i), (short) i);
+        }
+
+        var hashes = new HashMap<BlockData, Long>();
+        var air = Bukkit.createBlockData(Material.AIR);
+        var airHash = hash(air);
+        // the block data of the current section, so changed sections do not read it from the snapshot twice
+        var section = new BlockData[16 * 16 * 16];
+        var minSection = world.getMinHeight() >> 4;
+
+        var blocks = new short[previous.getBlocks().size()];
+        var changed = 0;
+        var sectionsY = (maxY >> 4) - (minY >> 4) + 1;
+        var sectionsZ = (maxZ >> 4) - (minZ >> 4) + 1;
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            var fromX = Math.max(minX, chunkX << 4);
+            var toX = Math.min(maxX, (chunkX << 4) + 15);
+
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                var fromZ = Math.max(minZ, chunkZ << 4);
+                var toZ = Math.min(maxZ, (chunkZ << 4) + 15);
+                var snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+
+                for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                    var fromY = Math.max(minY, sectionY << 4);
+                    var toY = Math.min(maxY, (sectionY << 4) + 15);
+
+                    var index = ((chunkX - (minX >> 4)) * sectionsY + sectionY - (minY >> 4)) * sectionsZ
+                            + chunkZ - (minZ >> 4);
+                    var count = (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+
+                    // empty sections only contain air, so their blocks do not have to be read
+                    var fingerprint = SEED;
+                    if (snapshot.isSectionEmpty(sectionY - minSection)) {
+                        for (int i = 0; i < count; i++) {
+                            section[i] = air;
+                            fingerprint = (fingerprint ^ airHash) * PRIME;
+                        }
+                    } else {
+                        var i = 0;
+                        for (int x = fromX; x <= toX; x++) {
+                            for (int y = fromY; y <= toY; y++) {
+                                for (int z = fromZ; z <= toZ; z++) {
+                                    var data = snapshot.getBlockData(x & 15, y, z & 15);
+                                    section[i++] = data;
+
+                                    fingerprint = (fingerprint ^ hashes.computeIfAbsent(data, Recapture::hash)) * PRIME;
+                                }
+                            }
+                        }
+                    }
+                    values[index] = fingerprint;
+
+                    var unchanged = fingerprint == old.values()[index];
+                    if (!unchanged) {
+                        changed++;
+                    }
+
+                    var i = 0;
+                    for (int x = fromX; x <= toX; x++) {
+                        for (int y = fromY; y <= toY; y++) {
+                            var row = ((x - minX) * sizeY + y - minY) * sizeZ - minZ;
+
+                            for (int z = fromZ; z <= toZ; z++) {
+                                if (unchanged) {
+                                    blocks[row + z] = previous.getBlock(row + z);
+                                    continue;
+                                }
+
+                                blocks[row + z] = indices.computeIfAbsent(section[i++], it -> {
+                                    Preconditions.checkState(palette.size() <= Short.MAX_VALUE, "Palette is full");
+
+                                    palette.add(it);
+                                    return (short) (palette.size() - 1);
+                                });
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        var minecraftVersion = Bukkit.getBukkitVersion().split("-")[0];
+        if (changed == 0 && previous.getMinecraftVersion().equals(minecraftVersion)) {
+            return previous;
+        }
+
+        var schematic = new Schematic(Schematic.DATA_VERSION, minecraftVersion, size.subtract(new Vector(1, 1, 1)),
+                SchematicBuilder.compact(palette, blocks), new HeapBlockStorage(blocks), previous.getIndexedWaypoints());
+        schematic.setFingerprints(new Fingerprints(minX & 15, minY & 15, minZ & 15, values));
+        return schematic;
+    }
+
+    private static Fingerprints getFingerprints(Schematic schematic, int alignX, int alignY, int alignZ) {
+        var cached = schematic.getFingerprints();
+        if (cached != null && cached.alignX() == alignX && cached.alignY() == alignY && cached.alignZ() == alignZ) {
+            return cached;
+        }
+
+        var palette = schematic.getPalette();
+        var hashes = new long[palette.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(palette.get(i));
+        }
+
+        var size = schematic.getDimensions();
+        var sizeX = size.getBlockX();
+        var sizeY = size.getBlockY();
+        var sizeZ = size.getBlockZ();
+
+        // section boundaries in schematic coordinates, where the first section may be cut off by the alignment
+        var values = new ArrayList<Long>();
+        for (int fromX = 0; fromX < sizeX; fromX = (fromX + alignX) / 16 * 16 + 16 - alignX) {
+            var toX = Math.min(sizeX, (fromX + alignX) / 16 * 16 + 16 - alignX);
+
+            for (int fromY = 0; fromY < sizeY; fromY = (fromY + alignY) / 16 * 16 + 16 - alignY) {
+                var toY = Math.min(sizeY, (fromY + alignY) / 16 * 16 + 16 - alignY);
+
+                for (int fromZ = 0; fromZ < sizeZ; fromZ = (fromZ + alignZ) / 16 * 16 + 16 - alignZ) {
+                    var toZ = Math.min(sizeZ, (fromZ + alignZ) / 16 * 16 + 16 - alignZ);
+
+                    var fingerprint = SEED;
+                    for (int x = fromX; x < toX; x++) {
+                        for (int y = fromY; y < toY; y++) {
+                            var row = (x * sizeY + y) * sizeZ;
+
+                            for (int z = fromZ; z < toZ; z++) {
+                                fingerprint = (fingerprint ^ hashes[schematic.getBlock(row + z)]) * PRIME;
+                            }
+                        }
+                    }
+
+                    values.add(fingerprint);
+                }
+            }
+        }
+
+        var fingerprints = new Fingerprints(alignX, alignY, alignZ, values.stream().mapToLong(Long::longValue).toArray());
+        schematic.setFingerprints(fingerprints);
+        return fingerprints;
+    }
+
+    // 64-bit FNV-1a of the block state string, which is stable across restarts, unlike the hash code of block data
+    private static long hash(BlockData data) {
+        var string = data.getAsString(true);
+        var hash = SEED;
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * PRIME;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,71 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+
+import java.util.function.Consumer;
+
+/**
+ * Reads the blocks of a region in paste order (x, then y, then z) through chunk snapshots.
+ * Only the chunks which share the current chunk x coordinate are held in memory,
+ * so very large regions can be read without keeping every chunk around.
+ * Chunks which were not loaded yet are loaded synchronously, and unloaded again once their strip is read.
+ */
+final class RegionReader {
+
+    private final World world;
+    private final Vector min;
+    private final Vector max;
+
+    /**
+     * @param world The world.
+     * @param min The minimum block position, inclusive.
+     * @param max The maximum block position, inclusive.
+     */
+    RegionReader(World world, Vector min, Vector max) {
+        this.world = world;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Reads every block in the region. Must be called on the main thread.
+     *
+     * @param consumer The consumer which receives the block data of every block, in paste order.
+     */
+    void forEach(Consumer<BlockData> consumer) {
+        var minX = min.getBlockX();
+        var minY = min.getBlockY();
+        var minZ = min.getBlockZ();
+        var maxX = max.getBlockX();
+        var maxY = max.getBlockY();
+        var maxZ = max.getBlockZ();
+
+        var minChunkZ = minZ >> 4;
+        var strip = new ChunkSnapshot[(maxZ >> 4) - minChunkZ + 1];
+        var loaded = new boolean[strip.length];
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int i = 0; i < strip.length; i++) {
+                loaded[i] = world.isChunkLoaded(chunkX, minChunkZ + i);
+                strip[i] = world.getChunkAt(chunkX, minChunkZ + i).getChunkSnapshot(false, false, false);
+            }
+
+            for (int x = Math.max(minX, chunkX << 4); x <= Math.min(maxX, (chunkX << 4) + 15); x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        consumer.accept(strip[(z >> 4) - minChunkZ].getBlockData(x & 15, y, z & 15));
+                    }
+                }
+            }
+
+            for (int i = 0; i < strip.length; i++) {
+                if (!loaded[i]) {
+                    world.unloadChunkRequest(chunkX, minChunkZ + i);
+                }
+            }
+        }
+    }
+}
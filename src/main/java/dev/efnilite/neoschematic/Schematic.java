@@ -13,8 +13,10 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -22,15 +24,26 @@ import java.util.stream.Collectors;
  *
  * @see #create(Location, Location)
  */
-public final class Schematic {
+public final class Schematic implements AutoCloseable {
 
     public static final int DATA_VERSION = 2;
+    private static final int DEFAULT_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    // one more than the threads, so a file can be read or written while every thread is busy
+    private static final int DEFAULT_PARALLELISM = DEFAULT_THREADS + 1;
+    private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
     private final int dataVersion;
     private final String minecraftVersion;
     private final Vector dimensions;
     private final List<BlockData> palette;
     private final List<Short> blocks;
-    private final Map<String, List<Location>> waypoints;
+    private final BlockStorage storage;
+    private final Waypoints waypoints;
+    private volatile long contentHash;
+    private volatile boolean hashed = false;
+    private volatile Recapture.Fingerprints fingerprints;
+    private volatile Histogram histogram;
+    private volatile long listBlockBytes = -1;
+    private boolean tracked = false;
 
     /**
      * @param dataVersion      The data version.
@@ -42,11 +55,57 @@ public final class Schematic {
      */
     public Schematic(int dataVersion, String minecraftVersion, Vector dimensions,
                      List<BlockData> palette, List<Short> blocks, Map<String, List<Location>> waypoints) {
+        this(dataVersion, minecraftVersion, dimensions, palette, blocks, Waypoints.of(waypoints));
+    }
+
+    /**
+     * @param dataVersion      The data version.
+     * @param minecraftVersion The Minecraft version.
+     * @param dimensions       The dimensions of the schematic.
+     * @param palette          The palette of block data.
+     * @param blocks           The block data.
+     * @param waypoints        The waypoints.
+     */
+    public Schematic(int dataVersion, String minecraftVersion, Vector dimensions,
+                     List<BlockData> palette, List<Short> blocks, Waypoints waypoints) {
         this.dataVersion = dataVersion;
         this.minecraftVersion = minecraftVersion;
         this.dimensions = dimensions;
         this.palette = palette;
         this.blocks = blocks;
+        this.storage = null;
+        this.waypoints = waypoints;
+    }
+
+    /**
+     * @param dataVersion      The data version.
+     * @param minecraftVersion The Minecraft version.
+     * @param dimensions       The dimensions of the schematic.
+     * @param palette          The palette of block data.
+     * @param storage          The block data. It is closed when the schematic is closed.
+     * @param waypoints        The waypoints.
+     */
+    public Schematic(int dataVersion, String minecraftVersion, Vector dimensions,
+                     List<BlockData> palette, BlockStorage storage, Map<String, List<Location>> waypoints) {
+        this(dataVersion, minecraftVersion, dimensions, palette, storage, Waypoints.of(waypoints));
+    }
+
+    /**
+     * @param dataVersion      The data version.
+     * @param minecraftVersion The Minecraft version.
+     * @param dimensions       The dimensions of the schematic.
+     * @param palette          The palette of block data.
+     * @param storage          The block data. It is closed when the schematic is closed.
+     * @param waypoints        The waypoints.
+     */
+    public Schematic(int dataVersion, String minecraftVersion, Vector dimensions,
+                     List<BlockData> palette, BlockStorage storage, Waypoints waypoints) {
+        this.dataVersion = dataVersion;
+        this.minecraftVersion = minecraftVersion;
+        this.dimensions = dimensions;
+        this.palette = palette;
+        this.blocks = new BlockStorageList(storage, palette.size());
+        this.storage = storage;
         this.waypoints = waypoints;
     }
   
@@ -59,7 +118,7 @@ public final class Schematic {
      */
     public Schematic(int dataVersion, String minecraftVersion, Vector dimensions,
                      List<BlockData> palette, List<Short> blocks) {
-        this(dataVersion, minecraftVersion, dimensions, palette, blocks, new HashMap<>());
+        this(dataVersion, minecraftVersion, dimensions, palette, blocks, Waypoints.empty());
     }
 
     /**
@@ -87,12 +146,43 @@ public final class Schematic {
      */
     @NotNull
     public static Schematic create(@NotNull Block pos1, @NotNull Block pos2) {
+        return create(pos1, pos2, BlockStorage.heap());
+    }
+
+    /**
+     * Synchronously gets and stores all blocks between the positions in a new {@link Schematic} instance,
+     * with blocks kept in the specified {@link BlockStorage}.
+     *
+     * @param pos1    The first position.
+     * @param pos2    The second position.
+     * @param storage The factory which allocates the storage for the blocks.
+     * @return A new {@link Schematic} instance, which should be closed if the storage is not on the heap.
+     */
+    @NotNull
+    public static Schematic create(@NotNull Location pos1, @NotNull Location pos2, @NotNull BlockStorage.Factory storage) {
+        Preconditions.checkArgument(pos1.getWorld() != null || pos2.getWorld() != null,
+                "Locations must have at least one world");
+        return create(pos1.getBlock(), pos2.getBlock(), storage);
+    }
+
+    /**
+     * Synchronously gets and stores all blocks between the positions in a new {@link Schematic} instance,
+     * with blocks kept in the specified {@link BlockStorage}.
+     *
+     * @param pos1    The first block.
+     * @param pos2    The second block.
+     * @param storage The factory which allocates the storage for the blocks.
+     * @return A new {@link Schematic} instance, which should be closed if the storage is not on the heap.
+     */
+    @NotNull
+    public static Schematic create(@NotNull Block pos1, @NotNull Block pos2, @NotNull BlockStorage.Factory storage) {
         Preconditions.checkArgument(pos1.getWorld() == pos2.getWorld(), "Blocks must be in the same world");
+        Preconditions.checkNotNull(storage, "Storage is null");
 
-        var data = getBlocks(pos1, pos2, pos1.getWorld());
+        var data = getBlocks(pos1, pos2, pos1.getWorld(), storage);
 
         return new Schematic(DATA_VERSION, Bukkit.getBukkitVersion().split("-")[0],
-                data.dimensions, data.palette, data.blocks);
+                data.dimensions, data.palette, data.blocks, new HashMap<>());
     }
 
     /**
@@ -132,7 +222,7 @@ public final class Schematic {
     ) {
         var world = pos1.getWorld();
 
-        var data = getBlocks(pos1, pos2, world);
+        var data = getBlocks(pos1, pos2, world, BlockStorage.heap());
         var min = Vector.getMinimum(pos1.getLocation().toVector(), pos2.getLocation().toVector())
                 .toLocation(world)
                 .getBlock();
@@ -151,6 +241,88 @@ public final class Schematic {
                 data.dimensions, data.palette, data.blocks, offsetWaypoints);
     }
 
+    /**
+     * Captures the blocks between the positions again, reusing the blocks of a previous capture
+     * for every chunk section which has not changed since. Sections which only contain air are not read at all.
+     * The waypoints of the previous schematic are kept. This must be called on the main thread.
+     * <p>
+     * Which sections have changed is determined by comparing fingerprints of the world with fingerprints of
+     * {@code previous}. These are cached on the schematics, so recapturing the result again is cheaper.
+     *
+     * @param previous The previous capture of the same region.
+     * @param pos1     The first block.
+     * @param pos2     The second block.
+     * @return A new {@link Schematic} instance, or {@code previous} itself if nothing has changed.
+     * If the region does not have the same dimensions as {@code previous}, the region is captured from scratch.
+     */
+    @NotNull
+    public static Schematic recapture(@NotNull Schematic previous, @NotNull Block pos1, @NotNull Block pos2) {
+        Preconditions.checkNotNull(previous, "Previous schematic is null");
+        Preconditions.checkArgument(pos1.getWorld() == pos2.getWorld(), "Blocks must be in the same world");
+
+        var min = Vector.getMinimum(pos1.getLocation().toVector(), pos2.getLocation().toVector());
+        var max = Vector.getMaximum(pos1.getLocation().toVector(), pos2.getLocation().toVector());
+
+        var schematic = Recapture.recapture(previous, pos1.getWorld(), min, max);
+
+        return schematic != null ? schematic : create(pos1, pos2);
+    }
+
+    /**
+     * Captures the blocks between the positions again, reusing the blocks of a previous capture
+     * for every chunk section which has not changed since.
+     *
+     * @param previous The previous capture of the same region.
+     * @param pos1     The first position.
+     * @param pos2     The second position.
+     * @return A new {@link Schematic} instance, or {@code previous} itself if nothing has changed.
+     * @see #recapture(Schematic, Block, Block)
+     */
+    @NotNull
+    public static Schematic recapture(@NotNull Schematic previous, @NotNull Location pos1, @NotNull Location pos2) {
+        Preconditions.checkArgument(pos1.getWorld() != null || pos2.getWorld() != null,
+                "Locations must have at least one world");
+        return recapture(previous, pos1.getBlock(), pos2.getBlock());
+    }
+
+    /**
+     * Synchronously gets all blocks between the positions and saves them straight to a file with the specified
+     * {@link FileType}, without creating a {@link Schematic} instance. The region is read chunk by chunk,
+     * so for {@link JsonSchematic} and {@link ZipSchematic} memory use is bounded by a strip of chunks.
+     *
+     * @param pos1 The first position.
+     * @param pos2 The second position.
+     * @param file The file to save to.
+     * @param type The {@link FileType} instance.
+     * @return {@code true} if the region was saved successfully, false if an error was returned.
+     */
+    public static boolean createToFile(@NotNull Location pos1, @NotNull Location pos2,
+                                       @NotNull File file, @NotNull FileType type) {
+        Preconditions.checkArgument(pos1.getWorld() != null || pos2.getWorld() != null,
+                "Locations must have at least one world");
+        return createToFile(pos1.getBlock(), pos2.getBlock(), file, type);
+    }
+
+    /**
+     * Synchronously gets all blocks between the positions and saves them straight to a file with the specified
+     * {@link FileType}, without creating a {@link Schematic} instance. The region is read chunk by chunk,
+     * so for {@link JsonSchematic} and {@link ZipSchematic} memory use is bounded by a strip of chunks.
+     *
+     * @param pos1 The first block.
+     * @param pos2 The second block.
+     * @param file The file to save to.
+     * @param type The {@link FileType} instance.
+     * @return {@code true} if the region was saved successfully, false if an error was returned.
+     */
+    public static boolean createToFile(@NotNull Block pos1, @NotNull Block pos2,
+                                       @NotNull File file, @NotNull FileType type) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkNotNull(type, "File type is null");
+        Preconditions.checkArgument(pos1.getWorld() == pos2.getWorld(), "Blocks must be in the same world");
+
+        return type.save(pos1, pos2, file);
+    }
+
     /**
      * Asynchronously gets and stores all blocks between the positions in a new {@link Schematic} instance.
      * This method avoids blocking the main thread during block fetching.
@@ -166,11 +338,7 @@ public final class Schematic {
             @NotNull Location pos2,
             @NotNull Plugin plugin
     ) {
-        var future = new CompletableFuture<Schematic>();
-
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> future.complete(create(pos1, pos2)));
-
-        return future;
+        return supplyAsync(() -> create(pos1, pos2), executor(plugin));
     }
 
     /**
@@ -208,11 +376,7 @@ public final class Schematic {
             @NotNull Map<String, List<Location>> waypoints,
             @NotNull Plugin plugin
     ) {
-        var future = new CompletableFuture<Schematic>();
-
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> future.complete(create(pos1, pos2, waypoints)));
-
-        return future;
+        return supplyAsync(() -> create(pos1, pos2, waypoints), executor(plugin));
     }
 
     /**
@@ -235,6 +399,101 @@ public final class Schematic {
         return createAsync(pos1.getLocation(), pos2.getLocation(), waypoints, plugin);
     }
 
+    /**
+     * Gets and stores all blocks between the positions in a new {@link Schematic} instance on the specified executor.
+     *
+     * @param pos1 The first position.
+     * @param pos2 The second position.
+     * @param executor The executor to run on.
+     * @return A {@link CompletableFuture}. When completed, the new {@link Schematic} instance is returned.
+     * If creating fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public static CompletableFuture<Schematic> createAsync(
+            @NotNull Location pos1,
+            @NotNull Location pos2,
+            @NotNull Executor executor
+    ) {
+        return supplyAsync(() -> create(pos1, pos2), executor);
+    }
+
+    /**
+     * Gets and stores all blocks between the positions in a new {@link Schematic} instance on the specified executor.
+     *
+     * @param pos1 The first position.
+     * @param pos2 The second position.
+     * @param waypoints A map of waypoints, where each key identifies a vector offset from the paste location.
+     * @param executor The executor to run on.
+     * @return A {@link CompletableFuture}. When completed, the new {@link Schematic} instance is returned.
+     * If creating fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public static CompletableFuture<Schematic> createAsync(
+            @NotNull Location pos1,
+            @NotNull Location pos2,
+            @NotNull Map<String, List<Location>> waypoints,
+            @NotNull Executor executor
+    ) {
+        return supplyAsync(() -> create(pos1, pos2, waypoints), executor);
+    }
+
+    /**
+     * Gets and stores all blocks between the positions in a new {@link Schematic} instance
+     * on the {@link #getDefaultExecutor() default executor}.
+     *
+     * @param pos1 The first position.
+     * @param pos2 The second position.
+     * @return A {@link CompletableFuture}. When completed, the new {@link Schematic} instance is returned.
+     * If creating fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public static CompletableFuture<Schematic> createAsync(@NotNull Location pos1, @NotNull Location pos2) {
+        return createAsync(pos1, pos2, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Combines schematics into one new schematic in memory, without placing blocks in a world.
+     * The new schematic covers every placement, and its minimum corner is the smallest origin.
+     * Where placements overlap, later placements replace the blocks of earlier ones.
+     * Waypoints of every placement are kept, moved by the placement's offset.
+     *
+     * @param placements The schematics and their origins.
+     * @param skipAir    Whether air in a placement should leave the blocks of earlier placements unchanged.
+     * @return A new {@link Schematic} instance.
+     * @throws IllegalArgumentException If there are no placements, or if the combined schematic is too large.
+     */
+    @NotNull
+    public static Schematic compose(@NotNull List<Placement> placements, boolean skipAir) {
+        Preconditions.checkNotNull(placements, "Placements are null");
+        Preconditions.checkArgument(!placements.isEmpty(), "No placements");
+
+        var min = placements.get(0).origin().clone();
+        var max = placements.get(0).max();
+        for (var placement : placements) {
+            min = Vector.getMinimum(min, placement.origin());
+            max = Vector.getMaximum(max, placement.max());
+        }
+
+        var builder = new SchematicBuilder(max.clone().subtract(min).add(new Vector(1, 1, 1)));
+        for (var placement : placements) {
+            builder.stamp(placement.schematic(), placement.origin().clone().subtract(min), skipAir);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Combines schematics into one new schematic in memory, including air.
+     *
+     * @param placements The schematics and their origins.
+     * @return A new {@link Schematic} instance.
+     * @see #compose(List, boolean)
+     */
+    @NotNull
+    public static Schematic compose(@NotNull List<Placement> placements) {
+        return compose(placements, false);
+    }
+
     /**
      * Reads a schematic from a file with the specified {@link FileType}.
      * For large schematics, use {@link #loadAsync(File, FileType, Plugin)}.
@@ -252,6 +511,26 @@ public final class Schematic {
         return type.load(file);
     }
 
+    /**
+     * Reads a schematic from a file with the specified {@link FileType}, with blocks kept in the specified
+     * {@link BlockStorage}.
+     *
+     * @param file    The file to read.
+     * @param type    The {@link FileType} instance.
+     * @param storage The factory which allocates the storage for the blocks.
+     * @return A new {@link Schematic} instance, which should be closed if the storage is not on the heap,
+     * or null if reading fails.
+     * @throws IllegalArgumentException If file does not exist or is null.
+     */
+    @Nullable
+    public static Schematic load(@NotNull File file, @NotNull FileType type, @NotNull BlockStorage.Factory storage) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+        Preconditions.checkNotNull(storage, "Storage is null");
+
+        return type.load(file, storage);
+    }
+
     /**
      * Loads a schematic from a file with the specified {@link FileType}.
      * For large schematics, use {@link #loadAsync(File, FileType, Plugin)}.
@@ -291,6 +570,36 @@ public final class Schematic {
         return load(file, new JsonSchematic());
     }
 
+    /**
+     * Reads the info of a schematic file with the specified {@link FileType}, without decoding its blocks.
+     * This is much faster than {@link #load(File, FileType)} when only the dimensions, versions,
+     * palette size or waypoint names are needed.
+     *
+     * @param file The file to read.
+     * @param type The {@link FileType} instance.
+     * @return A new {@link SchematicInfo} instance, or null if reading fails.
+     * @throws IllegalArgumentException If file does not exist or is null.
+     */
+    @Nullable
+    public static SchematicInfo readInfo(@NotNull File file, @NotNull FileType type) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        return type.readInfo(file);
+    }
+
+    /**
+     * Reads the info of a schematic file with the default {@link JsonSchematic}, without decoding its blocks.
+     *
+     * @param file The file to read.
+     * @return A new {@link SchematicInfo} instance, or null if reading fails.
+     * @throws IllegalArgumentException If file does not exist or is null.
+     */
+    @Nullable
+    public static SchematicInfo readInfo(@NotNull File file) {
+        return readInfo(file, new JsonSchematic());
+    }
+
     /**
      * Asynchronously reads a schematic from a file with the specified {@link FileType}.
      *
@@ -302,11 +611,7 @@ public final class Schematic {
      * @throws IllegalArgumentException If file does not exist or is null.
      */
     public static CompletableFuture<Schematic> loadAsync(@NotNull File file, @NotNull FileType type, @NotNull Plugin plugin) {
-        var future = new CompletableFuture<Schematic>();
-
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> future.complete(load(file, type)));
-
-        return future;
+        return supplyAsync(() -> load(file, type), executor(plugin));
     }
 
     /**
@@ -349,7 +654,109 @@ public final class Schematic {
         return loadAsync(new File(file), plugin);
     }
 
-    private static BlocksData getBlocks(Block pos1, Block pos2, @NotNull World world) {
+    /**
+     * Reads a schematic from a file with the specified {@link FileType} on the specified executor.
+     *
+     * @param file The file to read.
+     * @param type The {@link FileType} instance.
+     * @param executor The executor to run on.
+     * @return A {@link CompletableFuture}. When completed, the new {@link Schematic} instance is returned.
+     * If reading fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public static CompletableFuture<Schematic> loadAsync(@NotNull File file, @NotNull FileType type,
+                                                         @NotNull Executor executor) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkNotNull(type, "File type is null");
+
+        return supplyAsync(() -> type.loadOrThrow(file), executor);
+    }
+
+    /**
+     * Reads a schematic from a file with the specified {@link FileType}
+     * on the {@link #getDefaultExecutor() default executor}.
+     *
+     * @param file The file to read.
+     * @param type The {@link FileType} instance.
+     * @return A {@link CompletableFuture}. When completed, the new {@link Schematic} instance is returned.
+     * If reading fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public static CompletableFuture<Schematic> loadAsync(@NotNull File file, @NotNull FileType type) {
+        return loadAsync(file, type, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Reads many schematics with the specified {@link FileType} on the specified executor.
+     * Files are read one at a time, while other schematics are decoded in parallel.
+     * The {@link FileType} instance is shared by every file, so it must not keep state between loads.
+     *
+     * @param files       The files to read.
+     * @param type        The {@link FileType} instance.
+     * @param executor    The executor to run on.
+     * @param parallelism The maximum number of schematics which are read or decoded at the same time.
+     * @return The {@link SchematicBatch}, with a future for every file.
+     */
+    @NotNull
+    public static SchematicBatch<Schematic> loadAll(@NotNull Collection<File> files, @NotNull FileType type,
+                                                    @NotNull Executor executor, int parallelism) {
+        Preconditions.checkNotNull(files, "Files is null");
+        Preconditions.checkNotNull(type, "Type is null");
+        Preconditions.checkNotNull(executor, "Executor is null");
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+
+        return SchematicBatch.load(files, type, executor, parallelism);
+    }
+
+    /**
+     * Reads many schematics with the specified {@link FileType} on the {@link #getDefaultExecutor() default executor}.
+     *
+     * @param files The files to read.
+     * @param type  The {@link FileType} instance.
+     * @return The {@link SchematicBatch}, with a future for every file.
+     * @see #loadAll(Collection, FileType, Executor, int)
+     */
+    @NotNull
+    public static SchematicBatch<Schematic> loadAll(@NotNull Collection<File> files, @NotNull FileType type) {
+        return loadAll(files, type, DEFAULT_EXECUTOR, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Saves many schematics with the specified {@link FileType} on the specified executor.
+     * Files are written one at a time, while other schematics are encoded in parallel.
+     * The {@link FileType} instance is shared by every file, so it must not keep state between saves.
+     *
+     * @param schematics  The schematics, by the file to save them to.
+     * @param type        The {@link FileType} instance.
+     * @param executor    The executor to run on.
+     * @param parallelism The maximum number of schematics which are encoded or written at the same time.
+     * @return The {@link SchematicBatch}, with a future for every file.
+     */
+    @NotNull
+    public static SchematicBatch<Void> saveAll(@NotNull Map<File, Schematic> schematics, @NotNull FileType type,
+                                               @NotNull Executor executor, int parallelism) {
+        Preconditions.checkNotNull(schematics, "Schematics is null");
+        Preconditions.checkNotNull(type, "Type is null");
+        Preconditions.checkNotNull(executor, "Executor is null");
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+
+        return SchematicBatch.save(new LinkedHashMap<>(schematics), type, executor, parallelism);
+    }
+
+    /**
+     * Saves many schematics with the specified {@link FileType} on the {@link #getDefaultExecutor() default executor}.
+     *
+     * @param schematics The schematics, by the file to save them to.
+     * @param type       The {@link FileType} instance.
+     * @return The {@link SchematicBatch}, with a future for every file.
+     * @see #saveAll(Map, FileType, Executor, int)
+     */
+    @NotNull
+    public static SchematicBatch<Void> saveAll(@NotNull Map<File, Schematic> schematics, @NotNull FileType type) {
+        return saveAll(schematics, type, DEFAULT_EXECUTOR, DEFAULT_PARALLELISM);
+    }
+
+    private static BlocksData getBlocks(Block pos1, Block pos2, @NotNull World world, BlockStorage.Factory storage) {
         Preconditions.checkNotNull(pos1, "First position is null");
         Preconditions.checkNotNull(pos2, "Second position is null");
 
@@ -358,7 +765,12 @@ public final class Schematic {
         var dimensions = max.clone().subtract(min);
 
         var paletteMap = new LinkedHashMap<BlockData, Short>();
-        var blocks = new LinkedList<Short>();
+        var volume = Math.multiplyExact(Math.multiplyExact(dimensions.getBlockX() + 1L, dimensions.getBlockY() + 1L),
+                dimensions.getBlockZ() + 1L);
+        Preconditions.checkArgument(volume <= Integer.MAX_VALUE, "Schematic is too large");
+
+        var blocks = storage.allocate((int) volume);
+        var idx = 0;
 
         var pos = min.clone().toLocation(world);
         for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
@@ -378,7 +790,7 @@ public final class Schematic {
                         paletteMap.put(type, (short) size);
                     }
 
-                    blocks.add(paletteMap.get(type));
+                    blocks.set(idx++, paletteMap.get(type));
                 }
             }
         }
@@ -452,11 +864,7 @@ public final class Schematic {
      */
     @NotNull
     public CompletableFuture<Boolean> saveAsync(@NotNull File file, @NotNull FileType type, @NotNull Plugin plugin) {
-        var future = new CompletableFuture<Boolean>();
-
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> future.complete(save(file, type)));
-
-        return future;
+        return supplyAsync(() -> save(file, type), executor(plugin));
     }
 
     /**
@@ -499,6 +907,109 @@ public final class Schematic {
         return saveAsync(new File(file), plugin);
     }
 
+    /**
+     * Saves the schematic to a file with the specified {@link FileType} on the specified executor.
+     *
+     * @param file The file to save to.
+     * @param type The {@link FileType} instance.
+     * @param executor The executor to run on.
+     * @return A {@link CompletableFuture}, which is completed when the schematic has been saved.
+     * If saving fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync(@NotNull File file, @NotNull FileType type, @NotNull Executor executor) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkNotNull(type, "File type is null");
+
+        return supplyAsync(() -> {
+            type.saveOrThrow(this, file);
+
+            return null;
+        }, executor);
+    }
+
+    /**
+     * Saves the schematic to a file with the specified {@link FileType}
+     * on the {@link #getDefaultExecutor() default executor}.
+     *
+     * @param file The file to save to.
+     * @param type The {@link FileType} instance.
+     * @return A {@link CompletableFuture}, which is completed when the schematic has been saved.
+     * If saving fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync(@NotNull File file, @NotNull FileType type) {
+        return saveAsync(file, type, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Returns the executor which is used by the async methods that do not accept a {@link Plugin} or {@link Executor}.
+     * This is a small dedicated I/O pool with daemon threads, which are stopped when idle.
+     *
+     * @return The default executor.
+     */
+    @NotNull
+    public static Executor getDefaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Sets whether saved files are forced to the storage device before they replace the previous file.
+     * Files are always written to a temporary file first, so a failed save never leaves a partial file behind.
+     * Forcing also keeps the file after a power loss, at the cost of slower saves. Enabled by default.
+     *
+     * @param force Whether saved files are forced to the storage device.
+     */
+    public static void setForceWrites(boolean force) {
+        AtomicFile.setForce(force);
+    }
+
+    /**
+     * @return Whether saved files are forced to the storage device before they replace the previous file.
+     * @see #setForceWrites(boolean)
+     */
+    public static boolean isForceWrites() {
+        return AtomicFile.isForce();
+    }
+
+    private static Executor createDefaultExecutor() {
+        var threads = DEFAULT_THREADS;
+        var count = new AtomicInteger();
+
+        var executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "neoschematic-io-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static Executor executor(Plugin plugin) {
+        return runnable -> Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable);
+    }
+
+    // unlike CompletableFuture#supplyAsync, this allows checked exceptions
+    private static <T> CompletableFuture<T> supplyAsync(Callable<T> callable, Executor executor) {
+        var future = new CompletableFuture<T>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(callable.call());
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
     /**
      * Pastes the schematic at the specified location.
      *
@@ -516,39 +1027,122 @@ public final class Schematic {
      * @return A list of all blocks which have been altered.
      */
     public List<Block> paste(@NotNull Block block, boolean skipAir) {
+        return paste(block, PasteOptions.defaults().withSkipAir(skipAir));
+    }
+
+    /**
+     * Pastes the schematic at the specified location.
+     *
+     * @param location The location to paste the schematic at.
+     * @param options The {@link PasteOptions}. If it has a clip, only blocks inside the clip are pasted.
+     * @return A list of all blocks which have been altered.
+     */
+    public List<Block> paste(@NotNull Location location, @NotNull PasteOptions options) {
+        return paste(location.getBlock(), options);
+    }
+
+    /**
+     * Pastes the schematic at the specified block.
+     *
+     * @param block The block to paste the schematic at.
+     * @param options The {@link PasteOptions}. If it has a clip, only blocks inside the clip are pasted.
+     * @return A list of all blocks which have been altered.
+     */
+    public List<Block> paste(@NotNull Block block, @NotNull PasteOptions options) {
         Preconditions.checkNotNull(block, "Block is null");
+        Preconditions.checkNotNull(options, "Options are null");
 
-        var pos = block.getLocation();
-        var max = pos.clone().add(dimensions);
         var bs = new ArrayList<Block>();
+        var cursor = new PasteCursor(SchematicStream.of(this), block, options, bs::add);
 
-        var idx = 0;
-        for (int x = block.getX(); x <= max.getBlockX(); x++) {
-            pos.setX(x);
+        try {
+            while (!cursor.isDone()) {
+                cursor.place(Integer.MAX_VALUE);
+            }
+        } catch (IOException e) {
+            // an in-memory stream can only fail if the blocks do not match the dimensions
+            throw new IllegalStateException("Blocks do not match dimensions", e);
+        }
 
-            for (int y = block.getY(); y <= max.getBlockY(); y++) {
-                pos.setY(y);
+        return bs;
+    }
 
-                for (int z = block.getZ(); z <= max.getBlockZ(); z++) {
-                    pos.setZ(z);
+    /**
+     * Pastes the schematic chunk by chunk, only once it is needed. The part of the schematic in a chunk is pasted
+     * when the chunk loads, or when a player comes within {@code radius} blocks of an already loaded chunk.
+     * Every chunk is pasted at most once.
+     *
+     * @param location The location to paste the schematic at.
+     * @param options The {@link PasteOptions}.
+     * @param radius The distance to players in blocks within which loaded chunks are pasted.
+     * @param plugin The plugin instance, which the listener and task are registered to.
+     * @return The {@link LazyPaste}, which can be used to follow or cancel the paste.
+     */
+    @NotNull
+    public LazyPaste pasteLazily(@NotNull Location location, @NotNull PasteOptions options,
+                                 int radius, @NotNull Plugin plugin) {
+        Preconditions.checkNotNull(location.getWorld(), "World is null");
 
-                    var data = palette.get(blocks.get(idx));
+        var paste = new LazyPaste(this, location.getBlock(), options, radius, plugin);
+        paste.start();
+        return paste;
+    }
 
-                    if (skipAir && data.getMaterial().isAir()) {
-                        idx++;
-                        continue;
-                    }
+    /**
+     * Pastes a schematic straight from a file, without loading the entire schematic into memory.
+     * Blocks are decoded while they are placed, so memory use is bounded by a small read buffer.
+     * For large schematics, use {@link #pasteFromFileAsync(File, FileType, Location, PasteOptions, Plugin)}.
+     *
+     * @param file The file to read.
+     * @param type The {@link FileType} instance.
+     * @param location The location to paste the schematic at.
+     * @param options The {@link PasteOptions}.
+     * @return The amount of blocks which have been placed.
+     * @throws IOException If the file could not be read.
+     * @throws IllegalArgumentException If file does not exist or is null.
+     */
+    public static long pasteFromFile(@NotNull File file, @NotNull FileType type,
+                                     @NotNull Location location, @NotNull PasteOptions options) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
 
-                    var loopBlock = pos.getBlock();
-                    loopBlock.setBlockData(data);
-                    bs.add(loopBlock);
+        try (var stream = type.stream(file)) {
+            var cursor = new PasteCursor(stream, location.getBlock(), options);
 
-                    idx++;
-                }
+            while (!cursor.isDone()) {
+                cursor.place(Integer.MAX_VALUE);
             }
+
+            return cursor.getPlaced();
         }
+    }
 
-        return bs;
+    /**
+     * Pastes a schematic straight from a file over multiple ticks, without loading the entire schematic into memory.
+     * The file is opened and read ahead on the {@link #getDefaultExecutor() default executor}, and every tick,
+     * at most {@link PasteOptions#getBlocksPerTick()} of the blocks which have been read are placed on the main thread.
+     *
+     * @param file The file to read.
+     * @param type The {@link FileType} instance.
+     * @param location The location to paste the schematic at.
+     * @param options The {@link PasteOptions}.
+     * @param plugin The plugin instance.
+     * @return A {@link CompletableFuture}. When completed, the amount of blocks which have been placed is returned.
+     * If the file could not be read, the future is completed exceptionally.
+     * @throws IllegalArgumentException If file does not exist or is null.
+     */
+    @NotNull
+    public static CompletableFuture<Long> pasteFromFileAsync(@NotNull File file, @NotNull FileType type,
+                                                             @NotNull Location location, @NotNull PasteOptions options,
+                                                             @NotNull Plugin plugin) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        var task = new PasteTask(() -> type.stream(file), location.getBlock(), options, DEFAULT_EXECUTOR);
+
+        Bukkit.getScheduler().runTaskTimer(plugin, task, 0, 1);
+
+        return task.getFuture();
     }
 
     // rounds vector to lowest ints
@@ -581,17 +1175,17 @@ public final class Schematic {
     public List<Location> getWaypoints(@NotNull Block pastedAt, @NotNull String name) {
         Preconditions.checkNotNull(pastedAt.getWorld(), "World is null");
 
-        if (!waypoints.containsKey(name)) {
+        var count = waypoints.size(name);
+        if (count == 0) {
             return null;
         }
 
-        return waypoints.get(name).stream()
-                .map(location -> {
-                    Location added = location.clone();
-                    added.setWorld(pastedAt.getWorld());
-                    return added.add(pastedAt.getLocation());
-                })
-                .toList();
+        var located = new ArrayList<Location>(count);
+        for (int i = 0; i < count; i++) {
+            located.add(locate(pastedAt, name, i));
+        }
+
+        return Collections.unmodifiableList(located);
     }
 
     /**
@@ -619,19 +1213,19 @@ public final class Schematic {
     public Location getWaypoint(@NotNull Block pastedAt, @NotNull String name) {
         Preconditions.checkNotNull(pastedAt.getWorld(), "World is null");
 
-        if (!waypoints.containsKey(name)) {
+        if (waypoints.size(name) == 0) {
             return null;
         }
 
-        Location location = waypoints.get(name).get(0);
-
-        if (location == null) {
-            return null;
-        }
+        return locate(pastedAt, name, 0);
+    }
 
-        Location added = location.clone();
-        added.setWorld(pastedAt.getWorld());
-        return added.clone().add(pastedAt.getLocation());
+    private Location locate(Block pastedAt, String name, int index) {
+        return new Location(pastedAt.getWorld(),
+                pastedAt.getX() + waypoints.getX(name, index),
+                pastedAt.getY() + waypoints.getY(name, index),
+                pastedAt.getZ() + waypoints.getZ(name, index),
+                waypoints.getYaw(name, index), waypoints.getPitch(name, index));
     }
 
     /**
@@ -672,10 +1266,85 @@ public final class Schematic {
         return Collections.unmodifiableList(blocks);
     }
 
+    /**
+     * @param x The x coordinate, relative to the minimum corner of the schematic.
+     * @param y The y coordinate, relative to the minimum corner of the schematic.
+     * @param z The z coordinate, relative to the minimum corner of the schematic.
+     * @return The block data at the position.
+     * @throws IndexOutOfBoundsException If the position is outside of the schematic.
+     */
+    @NotNull
+    public BlockData getBlockData(int x, int y, int z) {
+        var sizeX = dimensions.getBlockX() + 1;
+        var sizeY = dimensions.getBlockY() + 1;
+        var sizeZ = dimensions.getBlockZ() + 1;
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ) {
+            throw new IndexOutOfBoundsException("Position " + x + ", " + y + ", " + z + " is outside of the schematic");
+        }
+
+        return palette.get(getBlock((x * sizeY + y) * sizeZ + z));
+    }
+
+    Recapture.Fingerprints getFingerprints() {
+        return fingerprints;
+    }
+
+    void setFingerprints(Recapture.Fingerprints fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    // avoids boxing when the blocks are in a storage
+    short getBlock(int index) {
+        return storage != null ? storage.get(index) : blocks.get(index);
+    }
+
+    /**
+     * Copies the blocks of this schematic into a new {@link BlockStorage}.
+     * This schematic is not changed, and can be closed afterwards.
+     *
+     * @param storage The factory which allocates the storage for the blocks.
+     * @return A new {@link Schematic} instance with the same contents.
+     */
+    @NotNull
+    public Schematic withStorage(@NotNull BlockStorage.Factory storage) {
+        Preconditions.checkNotNull(storage, "Storage is null");
+
+        var copy = storage.allocate(blocks.size());
+        for (int i = 0; i < copy.size(); i++) {
+            copy.set(i, getBlock(i));
+        }
+
+        return new Schematic(dataVersion, minecraftVersion, dimensions, palette, copy, waypoints);
+    }
+
+    /**
+     * Releases the {@link BlockStorage} of this schematic. The schematic must not be used afterwards.
+     * This is only necessary for storage outside the heap, such as {@link BlockStorage#direct()}.
+     */
+    @Override
+    public void close() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    /**
+     * @return The waypoints, relative to the minimum corner of the schematic. The map is created once and cached.
+     * @see #getIndexedWaypoints()
+     */
     @NotNull
     @UnmodifiableView
     public Map<String, List<Location>> getWaypoints() {
-        return Collections.unmodifiableMap(waypoints);
+        return waypoints.toMap();
+    }
+
+    /**
+     * @return The waypoints, relative to the minimum corner of the schematic, which can be searched
+     * without allocating {@link Location}s.
+     */
+    @NotNull
+    public Waypoints getIndexedWaypoints() {
+        return waypoints;
     }
 
     /**
@@ -718,6 +1387,176 @@ public final class Schematic {
         return blocks;
     }
 
+    /**
+     * Returns a 64-bit hash of the dimensions, palette and blocks of this schematic.
+     * The hash is computed once and cached, so the palette and blocks should not be modified afterwards.
+     * It is stable across restarts and is stored in saved files, so it can be used to find duplicate schematics.
+     *
+     * @return The content hash.
+     * @see SchematicInfo#contentHash()
+     */
+    public long getContentHash() {
+        if (!hashed) {
+            contentHash = ContentHash.of(dimensions, palette.stream().map(it -> it.getAsString(true)).toList(), blocks);
+            hashed = true;
+        }
+
+        return contentHash;
+    }
+
+    /**
+     * Returns the number of blocks of every palette entry, and the box around them.
+     * The histogram is computed once and cached, or read from the file if it was saved with it,
+     * so the palette and blocks should not be modified afterwards.
+     *
+     * @return The histogram.
+     */
+    @NotNull
+    public Histogram getHistogram() {
+        var computed = histogram;
+        if (computed == null) {
+            computed = Histogram.of(this);
+            histogram = computed;
+        }
+
+        return computed;
+    }
+
+    void setHistogram(@Nullable Histogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns an estimate of the memory this schematic uses, which is the total of {@link #getMemoryUsage()}.
+     *
+     * @return The estimated bytes.
+     */
+    public long estimateMemoryBytes() {
+        return getMemoryUsage().total();
+    }
+
+    /**
+     * Returns an estimate of the memory this schematic uses, by part.
+     * Block storage reports its own size exactly. Block data is shared by the server, so only the palette list is counted.
+     * Blocks which were given as a list are counted as if the list is backed by an array,
+     * so this is a lower bound for other lists, such as a {@link LinkedList}.
+     * Their size is computed once and cached, so the blocks should not be modified afterwards.
+     *
+     * @return The estimated memory usage.
+     */
+    @NotNull
+    public MemoryUsage getMemoryUsage() {
+        var paletteBytes = Memory.object(2 * Memory.REFERENCE) + Memory.array(palette.size(), Memory.REFERENCE);
+
+        long blockBytes;
+        long offHeapBytes = 0;
+        if (storage != null) {
+            blockBytes = ((BlockStorageList) blocks).getHeapBytes() + storage.getHeapBytes();
+            offHeapBytes = storage.getOffHeapBytes();
+        } else if (blocks instanceof SectionedBlockList sectioned) {
+            blockBytes = sectioned.getHeapBytes();
+        } else {
+            blockBytes = getListBlockBytes();
+        }
+
+        var derivedBytes = 0L;
+        var cachedHistogram = histogram;
+        if (cachedHistogram != null) {
+            derivedBytes += cachedHistogram.getHeapBytes();
+        }
+        var cachedFingerprints = fingerprints;
+        if (cachedFingerprints != null) {
+            derivedBytes += Memory.object(3 * 4 + Memory.REFERENCE) + Memory.array(cachedFingerprints.values().length, 8);
+        }
+
+        return new MemoryUsage(paletteBytes, blockBytes, offHeapBytes, waypoints.getHeapBytes(), derivedBytes);
+    }
+
+    // the blocks do not change, so they are only walked once
+    private long getListBlockBytes() {
+        var cached = listBlockBytes;
+        if (cached >= 0) {
+            return cached;
+        }
+
+        // assumes an array-backed list, where every index above the cache of Short#valueOf has its own box
+        long computed = Memory.object(2 * 4 + Memory.REFERENCE) + Memory.array(blocks.size(), Memory.REFERENCE);
+        if (palette.size() > 128) {
+            for (short block : blocks) {
+                if (block >= 128) {
+                    computed += Memory.object(2);
+                }
+            }
+        }
+
+        listBlockBytes = computed;
+        return computed;
+    }
+
+    /**
+     * Includes this schematic in {@link #getTotalMemoryUsage()}, until it is garbage collected.
+     * Schematics which are loaded by a {@link SchematicLibrary} are tracked already.
+     *
+     * @return This schematic.
+     */
+    @NotNull
+    public synchronized Schematic trackMemoryUsage() {
+        if (!tracked) {
+            tracked = true;
+            Memory.track(this);
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the total estimated memory usage of every schematic which is {@link #trackMemoryUsage() tracked}
+     * and has not been garbage collected yet. Schematics which are no longer used are included until they are collected,
+     * and sections or waypoints which are shared by schematics are counted for each of them.
+     *
+     * @return The total estimated memory usage.
+     */
+    @NotNull
+    public static MemoryUsage getTotalMemoryUsage() {
+        return Memory.total();
+    }
+
+    /**
+     * Estimated memory usage of one or more {@link Schematic}s, in bytes.
+     *
+     * @param palette       The palette list.
+     * @param blocks        The blocks on the heap.
+     * @param offHeapBlocks The blocks outside the heap, such as direct or memory-mapped storage.
+     * @param waypoints     The waypoints.
+     * @param derived       Cached data which is derived from the blocks, such as the {@link Histogram}.
+     */
+    public record MemoryUsage(long palette, long blocks, long offHeapBlocks, long waypoints, long derived) {
+
+        /**
+         * @return The bytes on the heap.
+         */
+        public long heap() {
+            return palette + blocks + waypoints + derived;
+        }
+
+        /**
+         * @return The bytes on and off the heap.
+         */
+        public long total() {
+            return heap() + offHeapBlocks;
+        }
+
+        /**
+         * @param other The other memory usage.
+         * @return The sum of both.
+         */
+        @NotNull
+        public MemoryUsage add(@NotNull MemoryUsage other) {
+            return new MemoryUsage(palette + other.palette, blocks + other.blocks, offHeapBlocks + other.offHeapBlocks,
+                    waypoints + other.waypoints, derived + other.derived);
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
@@ -726,6 +1565,7 @@ public final class Schematic {
 
         return this.dataVersion == that.dataVersion &&
                 Objects.equals(this.minecraftVersion, that.minecraftVersion) &&
+                this.getContentHash() == that.getContentHash() &&
                 Objects.equals(this.dimensions, that.dimensions) &&
                 Objects.equals(this.palette, that.palette) &&
                 Objects.equals(this.blocks, that.blocks);
@@ -733,7 +1573,7 @@ public final class Schematic {
 
     @Override
     public int hashCode() {
-        return Objects.hash(dataVersion, minecraftVersion, dimensions, palette, blocks);
+        return Long.hashCode(getContentHash());
     }
 
     @Override
@@ -742,11 +1582,12 @@ public final class Schematic {
                 "dataVersion=" + dataVersion + ", " +
                 "minecraftVersion=" + minecraftVersion + ", " +
                 "dimensions=" + dimensions + ", " +
-                "palette=" + palette + ", " +
-                "blocks=" + blocks + ']';
+                "palette=" + palette.size() + " entries, " +
+                "blocks=" + blocks.size() + ", " +
+                "contentHash=" + ContentHash.toHex(getContentHash()) + ']';
     }
 
-    private record BlocksData(Vector dimensions, List<BlockData> palette, List<Short> blocks) {
+    private record BlocksData(Vector dimensions, List<BlockData> palette, BlockStorage blocks) {
 
     }
 }
\ No newline at end of file
@@ -0,0 +1,516 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A single {@code .nspack} file which contains many schematics, each stored in the format of a {@link FileType}.
+ * The archive ends with a central directory which lists the name, type, position and {@link SchematicInfo}
+ * of every schematic, so opening an archive only reads the directory and loading a schematic only reads its bytes.
+ * Both are read through memory-mapped buffers.
+ * <p>
+ * Appending writes new schematics and a new directory after the old one, so existing data is never overwritten.
+ * Replaced schematics and old directories stay in the file until it is {@link #compact(File) compacted}.
+ * An archive is read from its last complete directory, so a crash while appending only loses the new schematics.
+ *
+ * <pre>{@code
+ * try (var appender = SchematicArchive.append(new File("maps.nspack"))) {
+ *     appender.add("castle", castle, "zip");
+ * }
+ *
+ * try (var archive = SchematicArchive.open(new File("maps.nspack"))) {
+ *     Schematic castle = archive.load("castle");
+ * }
+ * }</pre>
+ */
+public final class SchematicArchive implements Closeable {
+
+    private static final int MAGIC = 0x4E53504B; // NSPK
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FOOTER_SIZE = 20;
+
+    private final FileChannel channel;
+    private final Map<String, Supplier<FileType>> types;
+    private final Map<String, Entry> entries;
+
+    private SchematicArchive(FileChannel channel, Map<String, Supplier<FileType>> types, Map<String, Entry> entries) {
+        this.channel = channel;
+        this.types = types;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens an archive with the {@link SchematicLibrary#defaultTypes() default file types}.
+     *
+     * @param file The archive.
+     * @return The archive, which should be closed after use.
+     * @throws IOException If the archive could not be read.
+     */
+    @NotNull
+    public static SchematicArchive open(@NotNull File file) throws IOException {
+        return open(file, SchematicLibrary.defaultTypes());
+    }
+
+    /**
+     * @param file  The archive.
+     * @param types The file types by name, as used when adding schematics.
+     * @return The archive, which should be closed after use.
+     * @throws IOException If the archive could not be read.
+     */
+    @NotNull
+    public static SchematicArchive open(@NotNull File file, @NotNull Map<String, Supplier<FileType>> types) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkNotNull(types, "Types are null");
+
+        var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new SchematicArchive(channel, Map.copyOf(types), Collections.unmodifiableMap(readDirectory(channel).entries()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an archive for appending with the {@link SchematicLibrary#defaultTypes() default file types}.
+     * The archive is created if it does not exist.
+     *
+     * @param file The archive.
+     * @return The appender, which writes the new directory when it is closed.
+     * @throws IOException If the archive could not be read.
+     */
+    @NotNull
+    public static Appender append(@NotNull File file) throws IOException {
+        return append(file, SchematicLibrary.defaultTypes());
+    }
+
+    /**
+     * @param file  The archive.
+     * @param types The file types by name.
+     * @return The appender, which writes the new directory when it is closed.
+     * @throws IOException If the archive could not be read.
+     */
+    @NotNull
+    public static Appender append(@NotNull File file, @NotNull Map<String, Supplier<FileType>> types) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkNotNull(types, "Types are null");
+
+        var channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            Map<String, Entry> entries;
+            if (channel.size() == 0) {
+                var header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                entries = new LinkedHashMap<>();
+            } else {
+                var directory = readDirectory(channel);
+
+                // drops what a crash left behind after the last complete directory
+                if (directory.end() < channel.size()) {
+                    channel.truncate(directory.end());
+                }
+                entries = directory.entries();
+            }
+
+            return new Appender(channel, Map.copyOf(types), entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites an archive without replaced schematics and old directories.
+     * The archive is replaced atomically, so it stays readable if compacting fails.
+     *
+     * @param file The archive.
+     * @return The amount of bytes which were freed.
+     * @throws IOException If reading or writing fails.
+     */
+    public static long compact(@NotNull File file) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+
+        var path = file.toPath();
+        var temp = Files.createTempFile(path.toAbsolutePath().getParent(), file.getName(), ".tmp");
+
+        try {
+            long before;
+            long after;
+
+            try (var source = FileChannel.open(path, StandardOpenOption.READ);
+                 var target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                before = source.size();
+
+                var header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) {
+                    target.write(header);
+                }
+
+                var compacted = new LinkedHashMap<String, Entry>();
+                for (var entry : readDirectory(source).entries().values()) {
+                    var offset = target.position();
+                    transfer(source, entry.offset(), entry.length(), target);
+
+                    compacted.put(entry.name(), new Entry(entry.name(), entry.type(), offset, entry.length(), entry.info()));
+                }
+
+                writeDirectory(target, compacted.values());
+                target.force(true);
+                after = target.size();
+            }
+
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return before - after;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Loads a schematic from the archive. Only the bytes of this schematic are read.
+     *
+     * @param name The name of the schematic.
+     * @return The schematic, or null if there is no schematic with this name or if it could not be loaded.
+     */
+    @Nullable
+    public Schematic load(@NotNull String name) {
+        Preconditions.checkNotNull(name, "Name is null");
+
+        var entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+
+        var type = types.get(entry.type());
+        if (type == null) {
+            return null;
+        }
+
+        try {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset(), entry.length());
+
+            return type.get().load(Streams.of(buffer));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param name The name of the schematic.
+     * @return The entry of the schematic, or null if there is no schematic with this name.
+     */
+    @Nullable
+    public Entry getEntry(@NotNull String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @return Every schematic in the archive, in the order they were added.
+     */
+    @NotNull
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static Directory readDirectory(FileChannel channel) throws IOException {
+        var size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("Not an archive");
+        }
+
+        var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an archive");
+        }
+        if (header.getInt() != VERSION) {
+            throw new IOException("Unsupported archive version");
+        }
+
+        // usually the footer is at the end, unless a crash interrupted an append
+        var end = size;
+        long footer;
+        while ((footer = findFooter(channel, end)) >= 0) {
+            try {
+                return new Directory(readDirectory(channel, footer), footer + FOOTER_SIZE);
+            } catch (IOException | RuntimeException e) {
+                end = footer + FOOTER_SIZE - 1;
+            }
+        }
+
+        throw new IOException("Archive is incomplete or corrupt");
+    }
+
+    // the position of the last footer which ends at or before end, or -1
+    private static long findFooter(FileChannel channel, long end) throws IOException {
+        var window = ByteBuffer.allocate(64 * 1024);
+
+        // windows overlap by a footer, so a footer on the border of two windows is found
+        while (end - HEADER_SIZE >= FOOTER_SIZE) {
+            var start = Math.max(HEADER_SIZE, end - window.capacity());
+            window.clear().limit((int) (end - start));
+            while (window.hasRemaining()) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    throw new EOFException("Archive ended unexpectedly");
+                }
+            }
+
+            for (int i = window.limit() - FOOTER_SIZE; i >= 0; i--) {
+                var offset = window.getLong(i);
+                var length = window.getLong(i + 8);
+
+                if (window.getInt(i + 16) == MAGIC && offset >= HEADER_SIZE && length >= 4 && offset + length == start + i) {
+                    return start + i;
+                }
+            }
+
+            end = start + FOOTER_SIZE - 1;
+        }
+
+        return -1;
+    }
+
+    private static Map<String, Entry> readDirectory(FileChannel channel, long footer) throws IOException {
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, footer, FOOTER_SIZE);
+        var offset = buffer.getLong();
+        var length = buffer.getLong();
+
+        var entries = new LinkedHashMap<String, Entry>();
+        try (var in = new DataInputStream(Streams.of(channel.map(FileChannel.MapMode.READ_ONLY, offset, length)))) {
+            var count = in.readInt();
+
+            for (int i = 0; i < count; i++) {
+                var name = in.readUTF();
+                var type = in.readUTF();
+                var entryOffset = in.readLong();
+                var entryLength = in.readLong();
+
+                var dataVersion = in.readInt();
+                var minecraftVersion = in.readUTF();
+                var dimensions = new Vector(in.readInt(), in.readInt(), in.readInt());
+                var paletteSize = in.readInt();
+                var waypoints = new HashSet<String>();
+                var waypointCount = in.readInt();
+                for (int j = 0; j < waypointCount; j++) {
+                    waypoints.add(in.readUTF());
+                }
+                var contentHash = in.readLong();
+
+                if (entryOffset < HEADER_SIZE || entryOffset + entryLength > offset) {
+                    throw new IOException("Entry " + name + " is outside of the archive");
+                }
+
+                entries.put(name, new Entry(name, type, entryOffset, entryLength, new SchematicInfo(dataVersion,
+                        minecraftVersion, dimensions, paletteSize, Set.copyOf(waypoints), contentHash)));
+            }
+        }
+
+        return entries;
+    }
+
+    // writes the directory and footer at the current position of the channel
+    private static void writeDirectory(FileChannel channel, Collection<Entry> entries) throws IOException {
+        var offset = channel.position();
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(entries.size());
+
+            for (var entry : entries) {
+                var info = entry.info();
+
+                out.writeUTF(entry.name());
+                out.writeUTF(entry.type());
+                out.writeLong(entry.offset());
+                out.writeLong(entry.length());
+                out.writeInt(info.dataVersion());
+                out.writeUTF(info.minecraftVersion());
+                out.writeInt(info.dimensions().getBlockX());
+                out.writeInt(info.dimensions().getBlockY());
+                out.writeInt(info.dimensions().getBlockZ());
+                out.writeInt(info.paletteSize());
+                out.writeInt(info.waypoints().size());
+                for (var waypoint : info.waypoints()) {
+                    out.writeUTF(waypoint);
+                }
+                out.writeLong(info.contentHash());
+            }
+        }
+
+        var buffer = ByteBuffer.allocate(bytes.size() + FOOTER_SIZE)
+                .put(bytes.toByteArray())
+                .putLong(offset)
+                .putLong(bytes.size())
+                .putInt(MAGIC)
+                .flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void transfer(FileChannel source, long offset, long length, FileChannel target) throws IOException {
+        var done = 0L;
+        while (done < length) {
+            var count = source.transferTo(offset + done, length - done, target);
+            if (count <= 0) {
+                throw new EOFException("Archive ended unexpectedly");
+            }
+
+            done += count;
+        }
+    }
+
+    private record Directory(Map<String, Entry> entries, long end) {
+
+    }
+
+    /**
+     * A schematic in an archive.
+     *
+     * @param name   The name of the schematic.
+     * @param type   The name of the {@link FileType} the schematic is stored in.
+     * @param offset The position of the schematic in the archive.
+     * @param length The size of the schematic in bytes.
+     * @param info   The {@link SchematicInfo} of the schematic.
+     */
+    public record Entry(@NotNull String name, @NotNull String type, long offset, long length,
+                        @NotNull SchematicInfo info) {
+
+    }
+
+    /**
+     * Adds schematics to the end of an archive. The new directory is written when the appender is closed,
+     * so schematics which are added are only visible to readers which open the archive afterwards.
+     */
+    public static final class Appender implements Closeable {
+
+        private final FileChannel channel;
+        private final Map<String, Supplier<FileType>> types;
+        private final Map<String, Entry> entries;
+        private boolean closed = false;
+
+        private Appender(FileChannel channel, Map<String, Supplier<FileType>> types, Map<String, Entry> entries) {
+            this.channel = channel;
+            this.types = types;
+            this.entries = entries;
+        }
+
+        /**
+         * Adds a schematic, replacing the schematic with the same name.
+         *
+         * @param name      The name of the schematic.
+         * @param schematic The schematic.
+         * @param type      The name of the {@link FileType} to store the schematic in, like {@code zip}.
+         * @throws IOException If writing fails.
+         */
+        public void add(@NotNull String name, @NotNull Schematic schematic, @NotNull String type) throws IOException {
+            Preconditions.checkNotNull(name, "Name is null");
+            Preconditions.checkNotNull(schematic, "Schematic is null");
+            Preconditions.checkState(!closed, "Appender is closed");
+
+            var fileType = types.get(type);
+            Preconditions.checkArgument(fileType != null, "Unknown type " + type);
+
+            var offset = channel.size();
+            channel.position(offset);
+
+            var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            if (!fileType.get().save(schematic, out)) {
+                channel.truncate(offset);
+                throw new IOException("Failed to save schematic " + name);
+            }
+            out.flush();
+
+            entries.put(name, new Entry(name, type, offset, channel.size() - offset, SchematicInfo.of(schematic)));
+        }
+
+        /**
+         * Adds a schematic file as it is, without loading it. The type is determined by the file extension.
+         *
+         * @param name The name of the schematic.
+         * @param file The schematic file.
+         * @throws IOException If reading or writing fails.
+         */
+        public void add(@NotNull String name, @NotNull File file) throws IOException {
+            Preconditions.checkNotNull(name, "Name is null");
+            Preconditions.checkNotNull(file, "File is null");
+            Preconditions.checkState(!closed, "Appender is closed");
+
+            var fileName = file.getName();
+            var type = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            var fileType = types.get(type);
+            Preconditions.checkArgument(fileType != null, "Unknown type " + type);
+
+            var info = fileType.get().readInfo(file);
+            if (info == null) {
+                throw new IOException("Failed to read schematic " + file);
+            }
+
+            var offset = channel.size();
+            try (var source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                channel.position(offset);
+                transfer(source, 0, source.size(), channel);
+            }
+
+            entries.put(name, new Entry(name, type, offset, channel.size() - offset, info));
+        }
+
+        /**
+         * @param name The name of the schematic.
+         * @return True if the schematic was in the archive.
+         */
+        public boolean remove(@NotNull String name) {
+            Preconditions.checkState(!closed, "Appender is closed");
+
+            return entries.remove(name) != null;
+        }
+
+        /**
+         * Writes the directory and closes the archive.
+         *
+         * @throws IOException If writing fails.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try {
+                // the schematics are durable before the directory which refers to them
+                channel.force(false);
+                channel.position(channel.size());
+                writeDirectory(channel, entries.values());
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
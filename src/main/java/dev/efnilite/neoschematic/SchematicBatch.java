@@ -0,0 +1,207 @@
+package dev.efnilite.neoschematic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Saves or loads many schematics at once, see {@link Schematic#saveAll(Map, FileType)} and
+ * {@link Schematic#loadAll(Collection, FileType)}.
+ * <p>
+ * Encoding and decoding run in parallel, while reading and writing files happens one file at a time,
+ * so the disk is not shared by many files at once. While one file is read or written, other schematics are
+ * encoded or decoded. At most {@code parallelism} schematics are in progress at the same time.
+ * <p>
+ * Every file in progress is kept in memory in its encoded form, between encoding and writing or between
+ * reading and decoding, so a batch uses about {@code parallelism} times the size of the largest encoded file
+ * on top of the schematics themselves. Every built-in {@link FileType} encodes to and decodes from memory directly,
+ * without temporary files.
+ *
+ * @param <T> The result of every file.
+ */
+public final class SchematicBatch<T> {
+
+    private final Executor executor;
+    private final Map<File, CompletableFuture<T>> futures;
+    private final CompletableFuture<Void> future;
+    private final long started = System.nanoTime();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile long finished = 0;
+    private CompletableFuture<?> io = CompletableFuture.completedFuture(null);
+
+    private SchematicBatch(Collection<File> files, Executor executor, int parallelism,
+                           BiFunction<SchematicBatch<T>, File, CompletableFuture<T>> pipeline) {
+        this.executor = executor;
+
+        var futures = new LinkedHashMap<File, CompletableFuture<T>>();
+        for (var file : files) {
+            futures.put(file, new CompletableFuture<>());
+        }
+        this.futures = Collections.unmodifiableMap(futures);
+        this.future = CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .whenComplete((result, throwable) -> finished = System.nanoTime());
+
+        // every schematic which is done starts the next one
+        var queue = new ConcurrentLinkedQueue<>(futures.keySet());
+        for (int i = 0; i < Math.min(parallelism, futures.size()); i++) {
+            next(queue, pipeline);
+        }
+    }
+
+    static SchematicBatch<Void> save(Map<File, Schematic> schematics, FileType type, Executor executor, int parallelism) {
+        return new SchematicBatch<>(schematics.keySet(), executor, parallelism, (batch, file) ->
+                batch.compute(() -> {
+                    var out = new ByteArrayOutputStream();
+                    if (!type.save(schematics.get(file), out)) {
+                        throw new IOException("Failed to save schematic " + file);
+                    }
+
+                    return out.toByteArray();
+                }).thenCompose(encoded -> batch.io(() -> {
+                    AtomicFile.write(file.toPath(), out -> out.write(encoded));
+                    batch.bytes.addAndGet(encoded.length);
+
+                    return null;
+                })));
+    }
+
+    static SchematicBatch<Schematic> load(Collection<File> files, FileType type, Executor executor, int parallelism) {
+        return new SchematicBatch<>(new LinkedHashSet<>(files), executor, parallelism, (batch, file) ->
+                batch.io(() -> {
+                    var encoded = Files.readAllBytes(file.toPath());
+                    batch.bytes.addAndGet(encoded.length);
+
+                    return encoded;
+                }).thenCompose(encoded -> batch.compute(() -> {
+                    var schematic = type.load(new ByteArrayInputStream(encoded));
+                    if (schematic == null) {
+                        throw new IOException("Failed to load schematic " + file);
+                    }
+
+                    return schematic;
+                })));
+    }
+
+    private void next(Queue<File> queue, BiFunction<SchematicBatch<T>, File, CompletableFuture<T>> pipeline) {
+        File file;
+        while ((file = queue.poll()) != null) {
+            CompletableFuture<T> result;
+            try {
+                result = pipeline.apply(this, file);
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+
+            var item = file;
+            if (!result.isDone()) {
+                result.whenComplete((value, throwable) -> {
+                    finish(item, value, throwable);
+                    next(queue, pipeline);
+                });
+                return;
+            }
+
+            // failed or done right away, such as when the executor rejects it, so this loops instead of recursing
+            result.whenComplete((value, throwable) -> finish(item, value, throwable));
+        }
+    }
+
+    private void finish(File file, T value, Throwable throwable) {
+        var item = futures.get(file);
+
+        if (throwable == null) {
+            completed.incrementAndGet();
+            item.complete(value);
+        } else {
+            failed.incrementAndGet();
+            item.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+        }
+    }
+
+    private <R> CompletableFuture<R> compute(Callable<R> task) {
+        var result = new CompletableFuture<R>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+
+        return result;
+    }
+
+    // runs after every file operation which was submitted before, even if it failed
+    private synchronized <R> CompletableFuture<R> io(Callable<R> task) {
+        var result = io.handle((value, throwable) -> null).thenCompose(ignored -> compute(task));
+        io = result;
+
+        return result;
+    }
+
+    /**
+     * @return The result of every file, in the order they were given.
+     * A file fails on its own, without affecting the other files.
+     */
+    @NotNull
+    @UnmodifiableView
+    public Map<File, CompletableFuture<T>> getFutures() {
+        return futures;
+    }
+
+    /**
+     * @return A {@link CompletableFuture}, which is completed when every file is done.
+     * If any file failed, it is completed exceptionally.
+     */
+    @NotNull
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+    /**
+     * @return The current statistics of this batch.
+     */
+    @NotNull
+    public Stats getStats() {
+        var end = finished == 0 ? System.nanoTime() : finished;
+        var seconds = (end - started) / 1_000_000_000.0;
+        var done = completed.get();
+        var transferred = bytes.get();
+
+        return new Stats(futures.size(), done, failed.get(), transferred, seconds * 1000,
+                seconds == 0 ? 0 : transferred / seconds, seconds == 0 ? 0 : done / seconds);
+    }
+
+    /**
+     * Statistics of a {@link SchematicBatch}.
+     *
+     * @param total                The amount of files.
+     * @param completed            The amount of files which have been saved or loaded.
+     * @param failed               The amount of files which failed.
+     * @param bytes                The total size of the files which have been written or read.
+     * @param elapsedMillis        The time since the batch was started, until it finished.
+     * @param bytesPerSecond       The amount of bytes written or read per second.
+     * @param schematicsPerSecond  The amount of schematics saved or loaded per second.
+     */
+    public record Stats(int total, int completed, int failed, long bytes, double elapsedMillis,
+                        double bytesPerSecond, double schematicsPerSecond) {
+
+    }
+}
@@ -0,0 +1,299 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Builds a {@link Schematic} without placing blocks in a world, for example for procedural generation.
+ * Blocks are stored as palette indices in a primitive array, so {@link #set(int, int, int, BlockData)}
+ * and {@link #get(int, int, int)} take constant time. Every block starts out as air.
+ * <p>
+ * Coordinates are relative to the minimum corner of the schematic.
+ * A builder is not thread-safe, and can only be built once.
+ *
+ * <pre>{@code
+ * var room = new SchematicBuilder(new Vector(9, 5, 9))
+ *         .fill(0, 0, 0, 8, 4, 8, Material.STONE_BRICKS.createBlockData())
+ *         .fill(1, 1, 1, 7, 3, 7, Material.AIR.createBlockData())
+ *         .build();
+ * }</pre>
+ */
+public final class SchematicBuilder {
+
+    private final int sizeX, sizeY, sizeZ;
+    private final List<BlockData> palette = new ArrayList<>();
+    private final Map<BlockData, Short> indices = new HashMap<>();
+    private final Map<String, List<Location>> waypoints = new HashMap<>();
+    private short[] blocks;
+
+    /**
+     * @param dimensions The dimensions of the schematic, like {@link Schematic#getDimensions()}.
+     * @throws IllegalArgumentException If a dimension is not positive, or if the schematic is too large.
+     */
+    public SchematicBuilder(@NotNull Vector dimensions) {
+        Preconditions.checkNotNull(dimensions, "Dimensions are null");
+        Preconditions.checkArgument(dimensions.getBlockX() > 0 && dimensions.getBlockY() > 0 && dimensions.getBlockZ() > 0,
+                "Dimensions must be positive");
+
+        var volume = (long) dimensions.getBlockX() * dimensions.getBlockY() * dimensions.getBlockZ();
+        Preconditions.checkArgument(volume <= Integer.MAX_VALUE, "Schematic is too large");
+
+        this.sizeX = dimensions.getBlockX();
+        this.sizeY = dimensions.getBlockY();
+        this.sizeZ = dimensions.getBlockZ();
+        this.blocks = new short[(int) volume];
+
+        getIndex(Bukkit.createBlockData(Material.AIR));
+    }
+
+    /**
+     * @param x    The x coordinate.
+     * @param y    The y coordinate.
+     * @param z    The z coordinate.
+     * @param data The block data.
+     * @return This builder.
+     * @throws IndexOutOfBoundsException If the position is outside of the schematic.
+     */
+    @NotNull
+    public SchematicBuilder set(int x, int y, int z, @NotNull BlockData data) {
+        Preconditions.checkNotNull(data, "Block data is null");
+        checkBuilding();
+
+        blocks[getPosition(x, y, z)] = getIndex(data);
+        return this;
+    }
+
+    /**
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @return The block data at the position.
+     * @throws IndexOutOfBoundsException If the position is outside of the schematic.
+     */
+    @NotNull
+    public BlockData get(int x, int y, int z) {
+        checkBuilding();
+
+        return palette.get(blocks[getPosition(x, y, z)]);
+    }
+
+    /**
+     * Sets every block in the box between two corners, which are both included.
+     * The part of the box outside of the schematic is ignored.
+     *
+     * @param x1   The x coordinate of the first corner.
+     * @param y1   The y coordinate of the first corner.
+     * @param z1   The z coordinate of the first corner.
+     * @param x2   The x coordinate of the second corner.
+     * @param y2   The y coordinate of the second corner.
+     * @param z2   The z coordinate of the second corner.
+     * @param data The block data.
+     * @return This builder.
+     */
+    @NotNull
+    public SchematicBuilder fill(int x1, int y1, int z1, int x2, int y2, int z2, @NotNull BlockData data) {
+        Preconditions.checkNotNull(data, "Block data is null");
+        checkBuilding();
+
+        var minX = Math.max(0, Math.min(x1, x2));
+        var minY = Math.max(0, Math.min(y1, y2));
+        var minZ = Math.max(0, Math.min(z1, z2));
+        var maxX = Math.min(sizeX - 1, Math.max(x1, x2));
+        var maxY = Math.min(sizeY - 1, Math.max(y1, y2));
+        var maxZ = Math.min(sizeZ - 1, Math.max(z1, z2));
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return this;
+        }
+
+        var id = getIndex(data);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                var row = (x * sizeY + y) * sizeZ;
+
+                Arrays.fill(blocks, row + minZ, row + maxZ + 1, id);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Copies a schematic into this builder, including its waypoints.
+     * The part of the schematic outside of this builder is ignored.
+     *
+     * @param schematic The schematic.
+     * @param offset    The position of the minimum corner of the schematic in this builder.
+     * @param skipAir   Whether air in the schematic should leave the blocks in this builder unchanged.
+     * @return This builder.
+     */
+    @NotNull
+    public SchematicBuilder stamp(@NotNull Schematic schematic, @NotNull Vector offset, boolean skipAir) {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(offset, "Offset is null");
+        checkBuilding();
+
+        // map the palette of the schematic once, instead of looking up every block
+        var source = schematic.getPalette();
+        var remap = new short[source.size()];
+        var air = new boolean[source.size()];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = getIndex(source.get(i));
+            air[i] = skipAir && source.get(i).getMaterial().isAir();
+        }
+
+        var dimensions = schematic.getDimensions();
+        var sourceY = dimensions.getBlockY();
+        var sourceZ = dimensions.getBlockZ();
+        var offsetX = offset.getBlockX();
+        var offsetY = offset.getBlockY();
+        var offsetZ = offset.getBlockZ();
+
+        var fromX = Math.max(0, -offsetX);
+        var fromY = Math.max(0, -offsetY);
+        var fromZ = Math.max(0, -offsetZ);
+        var toX = Math.min(dimensions.getBlockX(), sizeX - offsetX);
+        var toY = Math.min(sourceY, sizeY - offsetY);
+        var toZ = Math.min(sourceZ, sizeZ - offsetZ);
+
+        for (int x = fromX; x < toX; x++) {
+            for (int y = fromY; y < toY; y++) {
+                var sourceRow = (x * sourceY + y) * sourceZ;
+                var targetRow = ((x + offsetX) * sizeY + y + offsetY) * sizeZ + offsetZ;
+
+                for (int z = fromZ; z < toZ; z++) {
+                    var id = schematic.getBlock(sourceRow + z);
+
+                    if (!air[id]) {
+                        blocks[targetRow + z] = remap[id];
+                    }
+                }
+            }
+        }
+
+        schematic.getWaypoints().forEach((name, locations) -> {
+            var list = waypoints.computeIfAbsent(name, k -> new ArrayList<>());
+
+            for (var location : locations) {
+                list.add(location.clone().add(offsetX, offsetY, offsetZ));
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Copies a schematic into this builder, including its waypoints and air.
+     *
+     * @param schematic The schematic.
+     * @param offset    The position of the minimum corner of the schematic in this builder.
+     * @return This builder.
+     * @see #stamp(Schematic, Vector, boolean)
+     */
+    @NotNull
+    public SchematicBuilder stamp(@NotNull Schematic schematic, @NotNull Vector offset) {
+        return stamp(schematic, offset, false);
+    }
+
+    /**
+     * @param name     The name of the waypoint.
+     * @param location The waypoint, relative to the minimum corner of the schematic. The world is ignored.
+     * @return This builder.
+     */
+    @NotNull
+    public SchematicBuilder addWaypoint(@NotNull String name, @NotNull Location location) {
+        Preconditions.checkNotNull(name, "Name is null");
+        Preconditions.checkNotNull(location, "Location is null");
+        checkBuilding();
+
+        var waypoint = location.clone();
+        waypoint.setWorld(null);
+        waypoints.computeIfAbsent(name, k -> new ArrayList<>()).add(waypoint);
+        return this;
+    }
+
+    /**
+     * Creates the schematic. The blocks are not copied, so the builder can not be used afterwards.
+     * Palette entries which are no longer used are removed, and the palette is ordered like {@link Schematic#create(Block, Block)}.
+     *
+     * @return A new {@link Schematic} instance.
+     * @throws IllegalStateException If the builder has already been built.
+     */
+    @NotNull
+    public Schematic build() {
+        checkBuilding();
+
+        var built = blocks;
+        blocks = null;
+
+        var compacted = compact(palette, built);
+
+        var copiedWaypoints = new HashMap<String, List<Location>>();
+        waypoints.forEach((name, locations) -> copiedWaypoints.put(name, List.copyOf(locations)));
+
+        return new Schematic(Schematic.DATA_VERSION, Bukkit.getBukkitVersion().split("-")[0],
+                new Vector(sizeX - 1, sizeY - 1, sizeZ - 1), List.copyOf(compacted),
+                new HeapBlockStorage(built), copiedWaypoints);
+    }
+
+    /**
+     * @return The dimensions of the schematic.
+     */
+    @NotNull
+    public Vector getDimensions() {
+        return new Vector(sizeX, sizeY, sizeZ);
+    }
+
+    // orders the palette by first use like Schematic#create, and drops unused entries, remapping the blocks in place
+    static List<BlockData> compact(List<BlockData> palette, short[] blocks) {
+        var remap = new short[palette.size()];
+        Arrays.fill(remap, (short) -1);
+        var compacted = new ArrayList<BlockData>();
+
+        for (int i = 0; i < blocks.length; i++) {
+            var block = blocks[i];
+
+            if (remap[block] < 0) {
+                remap[block] = (short) compacted.size();
+                compacted.add(palette.get(block));
+            }
+
+            blocks[i] = remap[block];
+        }
+
+        return compacted;
+    }
+
+    private int getPosition(int x, int y, int z) {
+        if (x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ) {
+            throw new IndexOutOfBoundsException("Position " + x + ", " + y + ", " + z + " is outside of the schematic");
+        }
+
+        return (x * sizeY + y) * sizeZ + z;
+    }
+
+    private short getIndex(BlockData data) {
+        var index = indices.get(data);
+        if (index != null) {
+            return index;
+        }
+
+        Preconditions.checkState(palette.size() <= Short.MAX_VALUE, "Palette is full");
+
+        index = (short) palette.size();
+        palette.add(data);
+        indices.put(data, index);
+        return index;
+    }
+
+    private void checkBuilding() {
+        Preconditions.checkState(blocks != null, "Builder has already been built");
+    }
+}
@@ -0,0 +1,137 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.generator.WorldInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * {@link ChunkGenerator} which writes schematics into chunks while they are generated,
+ * which avoids the lighting updates and packets of pasting into a loaded world.
+ * Every chunk only receives the part of each placement which overlaps it, and everything else is left empty.
+ * To combine this with other terrain, extend this class and call {@code super.generateNoise} after generating.
+ *
+ * <pre>{@code
+ * @Override
+ * public ChunkGenerator getDefaultWorldGenerator(String worldName, String id) {
+ *     return new SchematicChunkGenerator(List.of(new Placement(lobby, new Vector(-50, 64, -50))));
+ * }
+ * }</pre>
+ */
+public class SchematicChunkGenerator extends ChunkGenerator {
+
+    private final Map<Long, List<ChunkPart>> chunks = new HashMap<>();
+
+    /**
+     * Indexes the placements by chunk. This reads every block of every schematic once.
+     *
+     * @param placements The placements. Later placements overwrite earlier ones where they overlap.
+     */
+    public SchematicChunkGenerator(@NotNull List<Placement> placements) {
+        Preconditions.checkNotNull(placements, "Placements are null");
+
+        for (var placement : placements) {
+            var indexed = new IndexedPlacement(placement);
+
+            indexed.sections.forEach((key, sections) ->
+                    chunks.computeIfAbsent(key, k -> new ArrayList<>()).add(new ChunkPart(indexed, sections)));
+        }
+    }
+
+    @Override
+    public void generateNoise(@NotNull WorldInfo worldInfo, @NotNull Random random,
+                              int chunkX, int chunkZ, @NotNull ChunkData chunkData) {
+        var parts = chunks.get(key(chunkX, chunkZ));
+        if (parts == null) return;
+
+        for (var part : parts) {
+            for (int section : part.sections) {
+                part.placement.write(chunkX, section, chunkZ, chunkData);
+            }
+        }
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private record ChunkPart(IndexedPlacement placement, int[] sections) {
+
+    }
+
+    /**
+     * A placement with the sections which contain blocks, by chunk. Sections which are entirely air are skipped.
+     */
+    private static final class IndexedPlacement {
+
+        private final BlockData[] palette;
+        private final boolean[] air;
+        private final List<Short> blocks;
+        private final int originX, originY, originZ;
+        private final int sizeX, sizeY, sizeZ;
+        private final Map<Long, int[]> sections = new HashMap<>();
+
+        private IndexedPlacement(Placement placement) {
+            var schematic = placement.schematic();
+            var dimensions = schematic.getDimensions();
+
+            this.palette = schematic.getPalette().toArray(new BlockData[0]);
+            this.air = new boolean[palette.length];
+            for (int i = 0; i < palette.length; i++) {
+                air[i] = palette[i].getMaterial().isAir();
+            }
+
+            this.blocks = schematic.getBlocks();
+            this.originX = placement.origin().getBlockX();
+            this.originY = placement.origin().getBlockY();
+            this.originZ = placement.origin().getBlockZ();
+            this.sizeX = dimensions.getBlockX();
+            this.sizeY = dimensions.getBlockY();
+            this.sizeZ = dimensions.getBlockZ();
+
+            var found = new HashMap<Long, BitSet>();
+            var minSection = originY >> 4;
+
+            var idx = 0;
+            for (int x = originX; x < originX + sizeX; x++) {
+                for (int y = originY; y < originY + sizeY; y++) {
+                    for (int z = originZ; z < originZ + sizeZ; z++) {
+                        if (!air[blocks.get(idx++)]) {
+                            found.computeIfAbsent(key(x >> 4, z >> 4), k -> new BitSet())
+                                    .set((y >> 4) - minSection);
+                        }
+                    }
+                }
+            }
+
+            found.forEach((key, bits) -> sections.put(key, bits.stream().map(it -> it + minSection).toArray()));
+        }
+
+        // writes the blocks of one section of one chunk
+        private void write(int chunkX, int section, int chunkZ, ChunkData chunkData) {
+            var minX = Math.max(originX, chunkX << 4);
+            var maxX = Math.min(originX + sizeX - 1, (chunkX << 4) + 15);
+            var minY = Math.max(Math.max(originY, section << 4), chunkData.getMinHeight());
+            var maxY = Math.min(Math.min(originY + sizeY - 1, (section << 4) + 15), chunkData.getMaxHeight() - 1);
+            var minZ = Math.max(originZ, chunkZ << 4);
+            var maxZ = Math.min(originZ + sizeZ - 1, (chunkZ << 4) + 15);
+
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    var idx = ((x - originX) * sizeY + (y - originY)) * sizeZ + (minZ - originZ);
+
+                    for (int z = minZ; z <= maxZ; z++) {
+                        var id = blocks.get(idx++);
+
+                        if (!air[id]) {
+                            chunkData.setBlock(x & 15, y, z & 15, palette[id]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Summary of a schematic which can be read without decoding its blocks.
+ *
+ * @param dataVersion      The data version.
+ * @param minecraftVersion The Minecraft version.
+ * @param dimensions       The dimensions of the schematic, like {@link Schematic#getDimensions()}.
+ * @param paletteSize      The amount of entries in the palette.
+ * @param waypoints        The names of the waypoints.
+ * @param contentHash      The content hash, like {@link Schematic#getContentHash()},
+ *                         or 0 if the file was saved without one.
+ * @param histogram        The {@link Histogram}, if the file stores one which can be read without decoding the blocks,
+ *                         or null.
+ * @see Schematic#readInfo(java.io.File, FileType)
+ */
+public record SchematicInfo(int dataVersion, @NotNull String minecraftVersion, @NotNull Vector dimensions,
+                            int paletteSize, @NotNull Set<String> waypoints, long contentHash,
+                            @Nullable Histogram histogram) {
+
+    /**
+     * Creates info without a histogram.
+     */
+    public SchematicInfo(int dataVersion, @NotNull String minecraftVersion, @NotNull Vector dimensions,
+                         int paletteSize, @NotNull Set<String> waypoints, long contentHash) {
+        this(dataVersion, minecraftVersion, dimensions, paletteSize, waypoints, contentHash, null);
+    }
+
+    /**
+     * @param schematic The schematic.
+     * @return The info of a schematic which is already in memory, without a histogram,
+     * since {@link Schematic#getHistogram()} is available.
+     */
+    @NotNull
+    public static SchematicInfo of(@NotNull Schematic schematic) {
+        return new SchematicInfo(schematic.getDataVersion(), schematic.getMinecraftVersion(),
+                schematic.getDimensions(), schematic.getPalette().size(), Set.copyOf(schematic.getIndexedWaypoints().getNames()),
+                schematic.getContentHash());
+    }
+}
@@ -0,0 +1,506 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A directory of schematics with a persistent index, so the directory can be listed and queried
+ * without opening every schematic on startup.
+ * The index stores the size, last modified time, content hash and {@link SchematicInfo} of every file,
+ * and {@link #refresh()} only reads files which have changed since the index was written.
+ *
+ * <pre>{@code
+ * var library = new SchematicLibrary(new File(plugin.getDataFolder(), "maps"));
+ * library.refresh().thenRun(() -> library.findWithWaypoint("spawn").forEach(entry -> ...));
+ * }</pre>
+ */
+public final class SchematicLibrary {
+
+    /**
+     * The name of the index file, which is stored in the library directory.
+     */
+    public static final String INDEX_FILE = ".neoschematic-index.json";
+    private static final int INDEX_VERSION = 3;
+    // files are read and hashed, so more files at a time than the default executor has threads does not help
+    private static final int REFRESH_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
+    private final Path directory;
+    private final Map<String, Supplier<FileType>> types;
+    private final Executor executor;
+
+    private volatile Map<String, Entry> entries = Map.of();
+    private volatile Set<String> failed = Set.of();
+    private final Map<String, CompletableFuture<Schematic>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new library with the {@link #defaultTypes() default file types}
+     * which runs on the {@link Schematic#getDefaultExecutor() default executor}.
+     *
+     * @param directory The directory which contains the schematics.
+     */
+    public SchematicLibrary(@NotNull File directory) {
+        this(directory, defaultTypes(), Schematic.getDefaultExecutor());
+    }
+
+    /**
+     * @param directory The directory which contains the schematics.
+     * @param types     The file types by lowercase file extension, without the dot.
+     *                  A new instance is requested for every file.
+     * @param executor  The executor which files are read on.
+     */
+    public SchematicLibrary(@NotNull File directory, @NotNull Map<String, Supplier<FileType>> types,
+                            @NotNull Executor executor) {
+        Preconditions.checkNotNull(directory, "Directory is null");
+        Preconditions.checkNotNull(types, "Types are null");
+        Preconditions.checkNotNull(executor, "Executor is null");
+
+        this.directory = directory.toPath();
+        this.types = Map.copyOf(types);
+        this.executor = executor;
+    }
+
+    /**
+     * @return The file types which are recognized by default, by lowercase file extension.
+     */
+    @NotNull
+    public static Map<String, Supplier<FileType>> defaultTypes() {
+        return Map.of("json", JsonSchematic::new,
+                "zip", ZipSchematic::new,
+                "nsc", CompactSchematic::new);
+    }
+
+    /**
+     * Updates the index with the current contents of the directory and writes it to disk.
+     * Only new or changed files are read, in parallel. Cached schematics of changed or removed files are evicted.
+     * Files which can not be read are left out of the index and listed by {@link #getFailed()},
+     * so they do not stop the other files from being indexed.
+     *
+     * @return A {@link CompletableFuture}, which is completed when the index has been updated.
+     */
+    @NotNull
+    public CompletableFuture<Void> refresh() {
+        var updated = new ConcurrentHashMap<String, Entry>();
+        var unreadable = ConcurrentHashMap.<String>newKeySet();
+        var previous = new CompletableFuture<Map<String, Entry>>();
+        var files = new CompletableFuture<List<Path>>();
+
+        execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                previous.complete(entries.isEmpty() ? readIndex() : entries);
+
+                try (Stream<Path> stream = Files.walk(directory)) {
+                    files.complete(stream.filter(Files::isRegularFile)
+                            .filter(path -> getType(path) != null)
+                            .toList());
+                }
+            } catch (Throwable throwable) {
+                files.completeExceptionally(throwable);
+            }
+        }, files);
+
+        return files.thenCompose(paths -> forEachBounded(paths, REFRESH_PARALLELISM, path -> {
+            var key = directory.relativize(path).toString().replace(File.separatorChar, '/');
+
+            try {
+                var size = Files.size(path);
+                var lastModified = Files.getLastModifiedTime(path).toMillis();
+
+                var entry = previous.join().get(key);
+                if (entry == null || entry.size() != size || entry.lastModified() != lastModified) {
+                    // also skips unrelated files with a known extension, such as other plugins' json
+                    var info = Objects.requireNonNull(getType(path)).get().readInfo(path.toFile());
+                    if (info == null) {
+                        unreadable.add(key);
+                        cache.remove(key);
+                        return;
+                    }
+
+                    entry = new Entry(key, size, lastModified, hash(path), info);
+                    cache.remove(key);
+                }
+
+                updated.put(key, entry);
+            } catch (IOException | RuntimeException e) {
+                // the file may have been removed or may be in use while the directory is read
+                unreadable.add(key);
+                cache.remove(key);
+            }
+        })).thenRunAsync(() -> {
+            cache.keySet().removeIf(key -> !updated.containsKey(key));
+            entries = Map.copyOf(updated);
+            failed = Set.copyOf(unreadable);
+
+            try {
+                writeIndex();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Loads every indexed schematic into the cache, reading at most {@code parallelism} files at a time.
+     *
+     * @param parallelism The maximum amount of files to read at the same time.
+     * @return A {@link CompletableFuture}, which is completed when every schematic has been loaded.
+     */
+    @NotNull
+    public CompletableFuture<Void> warm(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+
+        // the workers already run on the executor, so each load runs inline.
+        // loads which are already in progress are not waited for, since they may be queued behind the workers
+        return forEachBounded(entries.values(), parallelism, entry -> load(entry, Runnable::run).getNow(null));
+    }
+
+    /**
+     * Loads a schematic from the library, or returns it from the cache if it has been loaded before.
+     *
+     * @param entry The entry.
+     * @return A {@link CompletableFuture}. When completed, the {@link Schematic} is returned.
+     * If reading fails, the future is completed exceptionally.
+     */
+    @NotNull
+    public CompletableFuture<Schematic> load(@NotNull Entry entry) {
+        return load(entry, executor);
+    }
+
+    private CompletableFuture<Schematic> load(Entry entry, Executor executor) {
+        var future = new CompletableFuture<Schematic>();
+        var existing = cache.putIfAbsent(entry.path(), future);
+        if (existing != null) {
+            return existing;
+        }
+
+        var path = directory.resolve(entry.path());
+        Schematic.loadAsync(path.toFile(), Objects.requireNonNull(getType(path)).get(), executor)
+                .whenComplete((schematic, throwable) -> {
+                    if (throwable == null) {
+                        future.complete(schematic.trackMemoryUsage());
+                        return;
+                    }
+
+                    // failed loads should be retried
+                    cache.remove(entry.path(), future);
+                    future.completeExceptionally(throwable);
+                });
+
+        return future;
+    }
+
+    /**
+     * Removes a schematic from the cache, so its memory can be reclaimed once it is no longer used elsewhere.
+     * It is read again the next time it is loaded.
+     *
+     * @param entry The entry.
+     * @return True if the schematic was cached.
+     */
+    public boolean evict(@NotNull Entry entry) {
+        Preconditions.checkNotNull(entry, "Entry is null");
+
+        return cache.remove(entry.path()) != null;
+    }
+
+    /**
+     * @return The estimated memory usage of every cached schematic which has finished loading.
+     * @see Schematic#getMemoryUsage()
+     */
+    @NotNull
+    public Schematic.MemoryUsage getCacheMemoryUsage() {
+        var total = new Schematic.MemoryUsage(0, 0, 0, 0, 0);
+
+        for (var future : cache.values()) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                total = total.add(future.join().getMemoryUsage());
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * @return The paths of the files which could not be read during the last {@link #refresh()},
+     * relative to the library directory and separated by {@code /}.
+     */
+    @NotNull
+    public Set<String> getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return Every indexed schematic.
+     */
+    @NotNull
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * @param name The name of the schematic file, with or without extension.
+     * @return The entry with this name, or null if there is none.
+     */
+    @Nullable
+    public Entry find(@NotNull String name) {
+        return entries.values().stream()
+                .filter(entry -> entry.name().equals(name) || entry.fileName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @param dimensions The dimensions, like {@link Schematic#getDimensions()}.
+     * @return Every entry with exactly these dimensions.
+     */
+    @NotNull
+    public List<Entry> findByDimensions(@NotNull Vector dimensions) {
+        return entries.values().stream()
+                .filter(entry -> entry.info().dimensions().equals(dimensions))
+                .toList();
+    }
+
+    /**
+     * Finds schematics with the same blocks, for example copies of one file under different names.
+     * Waypoints are not part of the content hash, so these may still differ.
+     *
+     * @param contentHash The content hash, like {@link Schematic#getContentHash()}.
+     * @return Every entry with this content hash.
+     */
+    @NotNull
+    public List<Entry> findByContentHash(long contentHash) {
+        return entries.values().stream()
+                .filter(entry -> entry.info().contentHash() != 0 && entry.info().contentHash() == contentHash)
+                .toList();
+    }
+
+    /**
+     * @param waypoint The name of the waypoint.
+     * @return Every entry which contains a waypoint with this name.
+     */
+    @NotNull
+    public List<Entry> findWithWaypoint(@NotNull String waypoint) {
+        return entries.values().stream()
+                .filter(entry -> entry.info().waypoints().contains(waypoint))
+                .toList();
+    }
+
+    /**
+     * @return The directory which contains the schematics.
+     */
+    @NotNull
+    public File getDirectory() {
+        return directory.toFile();
+    }
+
+    @Nullable
+    private Supplier<FileType> getType(Path path) {
+        var name = path.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+
+        if (dot < 0 || name.equals(INDEX_FILE)) {
+            return null;
+        }
+
+        return types.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // runs the task for every item, with at most parallelism tasks running at the same time
+    private <T> CompletableFuture<Void> forEachBounded(Collection<T> items, int parallelism, Task<T> task) {
+        var queue = new ConcurrentLinkedQueue<>(items);
+        var workers = new ArrayList<CompletableFuture<Void>>();
+
+        for (int i = 0; i < Math.min(parallelism, items.size()); i++) {
+            var worker = new CompletableFuture<Void>();
+            workers.add(worker);
+
+            execute(() -> {
+                try {
+                    T item;
+                    while ((item = queue.poll()) != null) {
+                        task.run(item);
+                    }
+                    worker.complete(null);
+                } catch (Throwable throwable) {
+                    queue.clear();
+                    worker.completeExceptionally(throwable);
+                }
+            }, worker);
+        }
+
+        return CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // a rejected task fails the future instead of the caller
+    private void execute(Runnable task, CompletableFuture<?> future) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private Map<String, Entry> readIndex() {
+        var file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            var index = GSON.fromJson(reader, Index.class);
+            if (index == null || index.version != INDEX_VERSION || index.entries == null) {
+                return Map.of();
+            }
+
+            var entries = new HashMap<String, Entry>();
+            for (var entry : index.entries) {
+                entries.put(entry.path, entry.toEntry());
+            }
+
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            // a broken index is rebuilt
+            return Map.of();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        var index = new Index();
+        index.version = INDEX_VERSION;
+        index.entries = entries.values().stream().map(IndexEntry::of).toList();
+
+        AtomicFile.write(directory.resolve(INDEX_FILE), out -> {
+            try (var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                GSON.toJson(index, writer);
+            }
+        });
+    }
+
+    private static String hash(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream stream = Files.newInputStream(path)) {
+            var buffer = new byte[64 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * An indexed schematic file.
+     *
+     * @param path         The path of the file, relative to the library directory and separated by {@code /}.
+     * @param size         The size of the file in bytes.
+     * @param lastModified The last modified time of the file in milliseconds since the epoch.
+     * @param hash         The SHA-256 hash of the file contents.
+     * @param info         The {@link SchematicInfo} of the schematic.
+     */
+    public record Entry(@NotNull String path, long size, long lastModified,
+                        @NotNull String hash, @NotNull SchematicInfo info) {
+
+        /**
+         * @return The file name, including extension.
+         */
+        @NotNull
+        public String fileName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        /**
+         * @return The file name, without extension.
+         */
+        @NotNull
+        public String name() {
+            var fileName = fileName();
+            var dot = fileName.lastIndexOf('.');
+
+            return dot < 0 ? fileName : fileName.substring(0, dot);
+        }
+    }
+
+    // classes instead of records, since the Gson of older servers can not create records
+    private static final class Index {
+
+        private int version;
+        private List<IndexEntry> entries;
+    }
+
+    private static final class IndexEntry {
+
+        private String path;
+        private long size;
+        private long lastModified;
+        private String hash;
+        private int dataVersion;
+        private String minecraftVersion;
+        private int[] dimensions;
+        private int paletteSize;
+        private List<String> waypoints;
+        private long contentHash;
+
+        private static IndexEntry of(Entry entry) {
+            var info = entry.info();
+            var indexed = new IndexEntry();
+
+            indexed.path = entry.path();
+            indexed.size = entry.size();
+            indexed.lastModified = entry.lastModified();
+            indexed.hash = entry.hash();
+            indexed.dataVersion = info.dataVersion();
+            indexed.minecraftVersion = info.minecraftVersion();
+            indexed.dimensions = new int[]{info.dimensions().getBlockX(), info.dimensions().getBlockY(),
+                    info.dimensions().getBlockZ()};
+            indexed.paletteSize = info.paletteSize();
+            indexed.waypoints = List.copyOf(info.waypoints());
+            indexed.contentHash = info.contentHash();
+
+            return indexed;
+        }
+
+        // throws if the entry is incomplete, which rebuilds the index
+        private Entry toEntry() {
+            var info = new SchematicInfo(dataVersion, Objects.requireNonNull(minecraftVersion),
+                    new Vector(dimensions[0], dimensions[1], dimensions[2]), paletteSize, Set.copyOf(waypoints), contentHash);
+
+            return new Entry(Objects.requireNonNull(path), size, lastModified, Objects.requireNonNull(hash), info);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+
+        void run(T item) throws Exception;
+
+    }
+}
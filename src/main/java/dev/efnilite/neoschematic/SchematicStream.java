@@ -0,0 +1,130 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sequential, read-once view of a schematic. The header and palette are available immediately,
+ * while blocks are decoded one at a time in paste order (x, then y, then z), so a stream
+ * never holds more than its read buffer in memory.
+ *
+ * @see FileType#stream(java.io.File)
+ * @see Schematic#pasteFromFile(java.io.File, FileType, org.bukkit.Location, PasteOptions)
+ */
+public interface SchematicStream extends Closeable {
+
+    /**
+     * @return The data version this schematic was saved in.
+     */
+    int getDataVersion();
+
+    /**
+     * @return The Minecraft version this schematic was saved in.
+     */
+    @NotNull
+    String getMinecraftVersion();
+
+    /**
+     * @return The dimensions of the schematic.
+     */
+    @NotNull
+    Vector getDimensions();
+
+    /**
+     * @return The palette of block data.
+     */
+    @NotNull
+    List<BlockData> getPalette();
+
+    /**
+     * @return True if there are more blocks to read.
+     * @throws IOException If reading fails.
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * @return The palette index of the next block.
+     * @throws IOException If reading fails or if there are no more blocks.
+     */
+    short next() throws IOException;
+
+    /**
+     * Skips over blocks without returning them.
+     *
+     * @param count The amount of blocks to skip.
+     * @throws IOException If reading fails or if there are not enough blocks.
+     */
+    default void skip(long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            next();
+        }
+    }
+
+    /**
+     * Returns a stream over a schematic which is already in memory.
+     *
+     * @param schematic The schematic.
+     * @return A new {@link SchematicStream} instance.
+     */
+    @NotNull
+    static SchematicStream of(@NotNull Schematic schematic) {
+        return new SchematicStream() {
+
+            private final int size = schematic.getBlocks().size();
+            private int idx = 0;
+
+            @Override
+            public int getDataVersion() {
+                return schematic.getDataVersion();
+            }
+
+            @Override
+            public @NotNull String getMinecraftVersion() {
+                return schematic.getMinecraftVersion();
+            }
+
+            @Override
+            public @NotNull Vector getDimensions() {
+                return schematic.getDimensions();
+            }
+
+            @Override
+            public @NotNull List<BlockData> getPalette() {
+                return schematic.getPalette();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return idx < size;
+            }
+
+            @Override
+            public short next() throws IOException {
+                if (!hasNext()) {
+                    throw new IOException("No more blocks");
+                }
+
+                return schematic.getBlock(idx++);
+            }
+
+            @Override
+            public void skip(long count) throws IOException {
+                if (count > size - idx) {
+                    throw new IOException("No more blocks");
+                }
+
+                idx += (int) count;
+            }
+
+            @Override
+            public void close() {
+
+            }
+        };
+    }
+}
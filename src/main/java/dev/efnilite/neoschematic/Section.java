@@ -0,0 +1,144 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.util.Vector;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable box of at most 16x16x16 blocks with its own palette, as stored in a {@link SectionPack}.
+ * Blocks are ordered like in a {@link Schematic}: x, then y, then z.
+ * Since sections are shared between schematics, the arrays must never be modified.
+ */
+final class Section {
+
+    static final int SIZE = 16;
+
+    final int sizeX, sizeY, sizeZ;
+    final String[] palette;
+    final short[] blocks;
+    final long hash;
+
+    Section(int sizeX, int sizeY, int sizeZ, String[] palette, short[] blocks) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.palette = palette;
+        this.blocks = blocks;
+
+        var hash = new ContentHash().putDimensions(new Vector(sizeX, sizeY, sizeZ));
+        for (short block : blocks) {
+            hash.putShort(block);
+        }
+        this.hash = hash.putPalette(List.of(palette)).finish();
+    }
+
+    /**
+     * @return The bytes this section uses on the heap.
+     */
+    long getHeapBytes() {
+        var bytes = Memory.object(3 * 4 + 2 * Memory.REFERENCE + 8) + Memory.array(palette.length, Memory.REFERENCE)
+                + Memory.array(blocks.length, 2);
+        for (var entry : palette) {
+            bytes += Memory.string(entry, true);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Copies a section out of a schematic.
+     *
+     * @param palette The palette of the schematic, as strings.
+     * @param blocks  The blocks of the schematic.
+     * @param size    The size of the schematic.
+     * @param x       The minimum x of the section in the schematic.
+     * @param y       The minimum y of the section in the schematic.
+     * @param z       The minimum z of the section in the schematic.
+     * @return The section.
+     */
+    static Section of(List<String> palette, List<Short> blocks, Vector size, int x, int y, int z) {
+        var sizeY = size.getBlockY();
+        var sizeZ = size.getBlockZ();
+        var sectionX = Math.min(SIZE, size.getBlockX() - x);
+        var sectionY = Math.min(SIZE, sizeY - y);
+        var sectionZ = Math.min(SIZE, sizeZ - z);
+
+        // global palette index to local palette index
+        var local = new short[palette.size()];
+        Arrays.fill(local, (short) -1);
+        var localPalette = new String[Math.min(palette.size(), sectionX * sectionY * sectionZ)];
+        var localSize = 0;
+
+        var sectionBlocks = new short[sectionX * sectionY * sectionZ];
+        var idx = 0;
+        for (int dx = 0; dx < sectionX; dx++) {
+            for (int dy = 0; dy < sectionY; dy++) {
+                var row = ((x + dx) * sizeY + y + dy) * sizeZ + z;
+
+                for (int dz = 0; dz < sectionZ; dz++) {
+                    var id = blocks.get(row + dz);
+
+                    if (local[id] < 0) {
+                        local[id] = (short) localSize;
+                        localPalette[localSize++] = palette.get(id);
+                    }
+
+                    sectionBlocks[idx++] = local[id];
+                }
+            }
+        }
+
+        return new Section(sectionX, sectionY, sectionZ, Arrays.copyOf(localPalette, localSize), sectionBlocks);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(sizeX);
+        out.writeByte(sizeY);
+        out.writeByte(sizeZ);
+
+        out.writeShort(palette.length);
+        for (var data : palette) {
+            out.writeUTF(data);
+        }
+
+        // a section has at most 4096 blocks, so a byte is enough for most palettes
+        var wide = palette.length > 256;
+        for (short block : blocks) {
+            if (wide) {
+                out.writeShort(block);
+            } else {
+                out.writeByte(block);
+            }
+        }
+    }
+
+    static Section read(DataInputStream in) throws IOException {
+        var sizeX = in.readUnsignedByte();
+        var sizeY = in.readUnsignedByte();
+        var sizeZ = in.readUnsignedByte();
+        if (sizeX > SIZE || sizeY > SIZE || sizeZ > SIZE) {
+            throw new IOException("Invalid section size");
+        }
+
+        var palette = new String[in.readUnsignedShort()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = in.readUTF();
+        }
+
+        var wide = palette.length > 256;
+        var blocks = new short[sizeX * sizeY * sizeZ];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = wide ? in.readShort() : (short) in.readUnsignedByte();
+
+            if (blocks[i] < 0 || blocks[i] >= palette.length) {
+                throw new IOException("Invalid palette index in section");
+            }
+        }
+
+        return new Section(sizeX, sizeY, sizeZ, palette, blocks);
+    }
+}
@@ -0,0 +1,172 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A directory of 16x16x16 sections, each stored once under its content hash.
+ * Schematics saved with {@link SectionedSchematic} only store references to these sections,
+ * so regions which appear in multiple schematics are only stored once.
+ * <p>
+ * Sections are also shared in memory: as long as a loaded schematic uses a section,
+ * loading another schematic which uses it does not read or allocate it again.
+ */
+public final class SectionPack {
+
+    private static final String EXTENSION = ".section";
+
+    private final Path directory;
+    private final Map<Long, WeakReference<Section>> loaded = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory The directory which contains the sections. It is created when a section is first written.
+     */
+    public SectionPack(@NotNull File directory) {
+        Preconditions.checkNotNull(directory, "Directory is null");
+
+        this.directory = directory.toPath();
+    }
+
+    /**
+     * Stores a section, unless a section with the same hash is already stored.
+     *
+     * @param section The section.
+     * @throws IOException If writing fails.
+     */
+    void put(Section section) throws IOException {
+        var file = getPath(section.hash);
+        if (Files.exists(file)) {
+            cache(section);
+            return;
+        }
+
+        Files.createDirectories(file.getParent());
+
+        // another thread may store the same section at the same time, which is fine since the contents are equal
+        AtomicFile.write(file, out -> {
+            try (var data = new DataOutputStream(new DeflaterOutputStream(out))) {
+                section.write(data);
+            }
+        });
+
+        cache(section);
+    }
+
+    /**
+     * Returns a section, reading it from disk if it is not in memory.
+     *
+     * @param hash The hash of the section.
+     * @return The section.
+     * @throws IOException If the section does not exist or reading fails.
+     */
+    Section get(long hash) throws IOException {
+        var reference = loaded.get(hash);
+        var section = reference == null ? null : reference.get();
+        if (section != null) {
+            return section;
+        }
+
+        var file = getPath(hash);
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException("Missing section " + ContentHash.toHex(hash));
+        }
+
+        try (var in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+            section = Section.read(in);
+        }
+
+        if (section.hash != hash) {
+            throw new IOException("Section " + ContentHash.toHex(hash) + " is corrupt");
+        }
+
+        return cache(section);
+    }
+
+    // returns the section which is in memory, so concurrent loads end up sharing one instance
+    private Section cache(Section section) {
+        var reference = loaded.compute(section.hash, (key, existing) ->
+                existing != null && existing.get() != null ? existing : new WeakReference<>(section));
+        var cached = reference.get();
+
+        return cached == null ? section : cached;
+    }
+
+    /**
+     * Deletes every section which is not referenced by any of the given manifests.
+     * Manifests which are not passed are broken afterwards, so every schematic which uses this pack should be passed.
+     *
+     * @param manifests The schematic files saved with {@link SectionedSchematic} using this pack.
+     * @return The amount of sections which were deleted.
+     * @throws IOException If a manifest could not be read, in which case nothing is deleted, or if deleting fails.
+     */
+    public int prune(@NotNull Collection<File> manifests) throws IOException {
+        Preconditions.checkNotNull(manifests, "Manifests are null");
+
+        var used = new HashSet<Long>();
+        for (var manifest : manifests) {
+            used.addAll(SectionedSchematic.readSections(manifest));
+        }
+
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        var deleted = 0;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (var path : stream.filter(Files::isRegularFile).toList()) {
+                var name = path.getFileName().toString();
+                if (!name.endsWith(EXTENSION)) continue;
+
+                long hash;
+                try {
+                    hash = ContentHash.fromHex(name.substring(0, name.length() - EXTENSION.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+
+                if (!used.contains(hash) && Files.deleteIfExists(path)) {
+                    loaded.remove(hash);
+                    deleted++;
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * @return The amount of sections which are currently shared in memory.
+     */
+    public int getLoadedSections() {
+        loaded.values().removeIf(reference -> reference.get() == null);
+
+        return loaded.size();
+    }
+
+    /**
+     * @return The directory which contains the sections.
+     */
+    @NotNull
+    public File getDirectory() {
+        return directory.toFile();
+    }
+
+    // sections are spread over subdirectories, since a single directory with many files is slow to list
+    private Path getPath(long hash) {
+        var hex = ContentHash.toHex(hash);
+
+        return directory.resolve(hex.substring(0, 2)).resolve(hex + EXTENSION);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.efnilite.neoschematic;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of the blocks of a schematic which is made up of shared {@link Section}s.
+ * Each section keeps its own palette, so every section has a table which maps it to the palette of the schematic.
+ */
+final class SectionedBlockList extends AbstractList<Short> implements RandomAccess {
+
+    private final int sizeX, sizeY, sizeZ;
+    private final int sectionsY, sectionsZ;
+    private final Section[] sections;
+    private final short[][] remaps;
+
+    /**
+     * @param sizeX    The size of the schematic on the x-axis.
+     * @param sizeY    The size of the schematic on the y-axis.
+     * @param sizeZ    The size of the schematic on the z-axis.
+     * @param sections The sections, ordered like blocks.
+     * @param remaps   For every section, its palette indices mapped to palette indices of the schematic.
+     */
+    SectionedBlockList(int sizeX, int sizeY, int sizeZ, Section[] sections, short[][] remaps) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.sectionsY = (sizeY + Section.SIZE - 1) / Section.SIZE;
+        this.sectionsZ = (sizeZ + Section.SIZE - 1) / Section.SIZE;
+        this.sections = sections;
+        this.remaps = remaps;
+    }
+
+    @Override
+    public Short get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        var x = index / (sizeY * sizeZ);
+        var y = index / sizeZ % sizeY;
+        var z = index % sizeZ;
+
+        var idx = ((x >> 4) * sectionsY + (y >> 4)) * sectionsZ + (z >> 4);
+        var section = sections[idx];
+        var local = section.blocks[((x & 15) * section.sizeY + (y & 15)) * section.sizeZ + (z & 15)];
+
+        return remaps[idx][local];
+    }
+
+    /**
+     * @return The bytes the sections and remaps use on the heap. Sections may be shared with other schematics.
+     */
+    long getHeapBytes() {
+        var bytes = Memory.object(5 * 4 + 2 * Memory.REFERENCE) + Memory.array(sections.length, Memory.REFERENCE)
+                + Memory.array(remaps.length, Memory.REFERENCE);
+
+        for (int i = 0; i < sections.length; i++) {
+            bytes += sections[i].getHeapBytes() + Memory.array(remaps[i].length, 2);
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public int size() {
+        return sizeX * sizeY * sizeZ;
+    }
+}
@@ -0,0 +1,292 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * {@link FileType} which stores the blocks of a schematic as 16x16x16 sections in a shared {@link SectionPack}.
+ * The file itself is a small JSON manifest with the header, palette, waypoints and the hashes of its sections,
+ * so schematics which share regions only store these regions once, both on disk and in memory.
+ * <p>
+ * Sections are aligned to the minimum corner of the schematic, so shared regions are only detected
+ * if they are at the same offset from a multiple of 16 in each schematic.
+ *
+ * <pre>{@code
+ * var pack = new SectionPack(new File(plugin.getDataFolder(), "sections"));
+ * schematic.save(new File(plugin.getDataFolder(), "maps/castle.nsm"), new SectionedSchematic(pack));
+ * }</pre>
+ */
+public class SectionedSchematic implements FileType {
+
+    private static final Gson GSON = new GsonBuilder()
+            .setPrettyPrinting()
+            .disableHtmlEscaping()
+            .create();
+
+    private final SectionPack pack;
+
+    /**
+     * @param pack The pack which stores the sections.
+     */
+    public SectionedSchematic(@NotNull SectionPack pack) {
+        Preconditions.checkNotNull(pack, "Pack is null");
+
+        this.pack = pack;
+    }
+
+    @Override
+    public boolean save(@NotNull Schematic schematic, @NotNull File file) {
+        try {
+            saveOrThrow(schematic, file);
+        } catch (IOException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void saveOrThrow(@NotNull Schematic schematic, @NotNull File file) throws IOException {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(file, "File is null");
+
+        var manifest = createManifest(schematic);
+
+        AtomicFile.write(file.toPath(), out -> writeManifest(manifest, out));
+    }
+
+    /**
+     * Saves the sections of a schematic to the pack, and writes the manifest to a stream.
+     *
+     * @param schematic The schematic.
+     * @param out       The stream to write the manifest to, which is not closed.
+     * @return True if the schematic was saved, false if not.
+     */
+    @Override
+    public boolean save(@NotNull Schematic schematic, @NotNull OutputStream out) {
+        Preconditions.checkNotNull(schematic, "Schematic is null");
+        Preconditions.checkNotNull(out, "Stream is null");
+
+        try {
+            writeManifest(createManifest(schematic), Streams.uncloseable(out));
+        } catch (IOException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    // saves the sections to the pack
+    private Manifest createManifest(Schematic schematic) throws IOException {
+        var size = schematic.getDimensions();
+        var palette = schematic.getPalette().stream().map(it -> it.getAsString(true)).toList();
+        var blocks = schematic.getBlocks();
+
+        var sections = new ArrayList<String>();
+        for (int x = 0; x < size.getBlockX(); x += Section.SIZE) {
+            for (int y = 0; y < size.getBlockY(); y += Section.SIZE) {
+                for (int z = 0; z < size.getBlockZ(); z += Section.SIZE) {
+                    var section = Section.of(palette, blocks, size, x, y, z);
+
+                    pack.put(section);
+                    sections.add(ContentHash.toHex(section.hash));
+                }
+            }
+        }
+
+        return new Manifest(schematic.getDataVersion(), schematic.getMinecraftVersion(),
+                List.of(size.getBlockX() - 1, size.getBlockY() - 1, size.getBlockZ() - 1), palette, sections,
+                JsonSchematic.serializeWaypoints(schematic.getIndexedWaypoints()), ContentHash.toHex(schematic.getContentHash()),
+                schematic.getHistogram().encode());
+    }
+
+    private static void writeManifest(Manifest manifest, OutputStream out) throws IOException {
+        try (var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            GSON.toJson(manifest, writer);
+        }
+    }
+
+    @Override
+    @Nullable
+    public Schematic load(@NotNull File file) {
+        try {
+            return loadOrThrow(file);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Schematic loadOrThrow(@NotNull File file) throws IOException {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        return load(readManifest(file));
+    }
+
+    /**
+     * Reads a manifest from a stream, and loads its sections from the pack.
+     *
+     * @param in The stream to read the manifest from, which is not closed.
+     * @return The schematic, or null if the manifest or a section could not be read.
+     */
+    @Override
+    @Nullable
+    public Schematic load(@NotNull InputStream in) {
+        Preconditions.checkNotNull(in, "Stream is null");
+
+        try {
+            return load(readManifest(Streams.uncloseable(in), "from stream"));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Schematic load(Manifest manifest) throws IOException {
+        var indices = new HashMap<String, Short>();
+        for (int i = 0; i < manifest.palette.size(); i++) {
+            indices.put(manifest.palette.get(i), (short) i);
+        }
+
+        var sections = new Section[manifest.sections.size()];
+        var remaps = new short[sections.length][];
+        for (int i = 0; i < sections.length; i++) {
+            var section = pack.get(ContentHash.fromHex(manifest.sections.get(i)));
+            var remap = new short[section.palette.length];
+
+            for (int j = 0; j < remap.length; j++) {
+                var index = indices.get(section.palette[j]);
+                if (index == null) {
+                    throw new IOException("Section uses a block which is not in the palette");
+                }
+
+                remap[j] = index;
+            }
+
+            sections[i] = section;
+            remaps[i] = remap;
+        }
+
+        var dimensions = new Vector(manifest.dimensions.get(0),
+                manifest.dimensions.get(1),
+                manifest.dimensions.get(2));
+        var sizeX = dimensions.getBlockX() + 1;
+        var sizeY = dimensions.getBlockY() + 1;
+        var sizeZ = dimensions.getBlockZ() + 1;
+        var expected = ceilDiv(sizeX) * ceilDiv(sizeY) * ceilDiv(sizeZ);
+        if (sections.length != expected) {
+            throw new IOException("Expected " + expected + " sections, found " + sections.length);
+        }
+
+        // sections are matched to the palette as it was saved, so it is only migrated here
+        var palette = Migration.createPalette(manifest.minecraftVersion, manifest.palette);
+
+        var schematic = new Schematic(Schematic.DATA_VERSION, Migration.getVersion(manifest.minecraftVersion), dimensions, palette,
+                new SectionedBlockList(sizeX, sizeY, sizeZ, sections, remaps),
+                JsonSchematic.deserializeWaypoints(manifest.waypoints));
+        schematic.setHistogram(Histogram.decode(palette, manifest.histogram, schematic.getDimensions()));
+        return schematic;
+    }
+
+    @Override
+    @Nullable
+    public SchematicInfo readInfo(@NotNull File file) {
+        Preconditions.checkNotNull(file, "File is null");
+        Preconditions.checkArgument(file.exists(), "File does not exist");
+
+        try {
+            var manifest = readManifest(file);
+            var dimensions = new Vector(manifest.dimensions.get(0) + 1,
+                    manifest.dimensions.get(1) + 1,
+                    manifest.dimensions.get(2) + 1);
+            var histogram = manifest.histogram == null ? null
+                    : Histogram.decode(Migration.createPalette(manifest.minecraftVersion, manifest.palette), manifest.histogram, dimensions);
+
+            return new SchematicInfo(manifest.dataVersion, manifest.minecraftVersion, dimensions,
+                    manifest.palette.size(), Set.copyOf(manifest.waypoints.keySet()),
+                    manifest.contentHash == null ? 0 : ContentHash.fromHex(manifest.contentHash), histogram);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param file The manifest.
+     * @return The hashes of every section the manifest references.
+     * @throws IOException If the manifest could not be read.
+     */
+    static List<Long> readSections(File file) throws IOException {
+        try {
+            return readManifest(file).sections.stream().map(ContentHash::fromHex).toList();
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid manifest " + file, e);
+        }
+    }
+
+    private static Manifest readManifest(File file) throws IOException {
+        return readManifest(Files.newInputStream(file.toPath()), file.toString());
+    }
+
+    private static Manifest readManifest(InputStream in, String name) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            var manifest = GSON.fromJson(reader, Manifest.class);
+            if (manifest == null || manifest.dimensions == null || manifest.palette == null
+                    || manifest.sections == null || manifest.waypoints == null) {
+                throw new IOException("Invalid manifest " + name);
+            }
+
+            return manifest;
+        }
+    }
+
+    private static int ceilDiv(int size) {
+        return (size + Section.SIZE - 1) / Section.SIZE;
+    }
+
+    // a class instead of a record, since the Gson of older servers can not create records
+    private static final class Manifest {
+
+        private int dataVersion;
+        private String minecraftVersion;
+        private List<Integer> dimensions;
+        private List<String> palette;
+        private List<String> sections;
+        private Map<String, List<String>> waypoints;
+        private String contentHash;
+        private int[] histogram;
+
+        private Manifest() {
+
+        }
+
+        private Manifest(int dataVersion, String minecraftVersion, List<Integer> dimensions,
+                         List<String> palette, List<String> sections,
+                         Map<String, List<String>> waypoints, String contentHash, int[] histogram) {
+            this.dataVersion = dataVersion;
+            this.minecraftVersion = minecraftVersion;
+            this.dimensions = dimensions;
+            this.palette = palette;
+            this.sections = sections;
+            this.waypoints = waypoints;
+            this.contentHash = contentHash;
+            this.histogram = histogram;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package dev.efnilite.neoschematic;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream adapters for {@link FileType}s which read from or write to streams they do not own.
+ */
+final class Streams {
+
+    private Streams() {
+
+    }
+
+    /**
+     * @param out The stream.
+     * @return A stream which writes to {@code out}, and only flushes it when closed.
+     */
+    static OutputStream uncloseable(OutputStream out) {
+        return new FilterOutputStream(out) {
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * @param in The stream.
+     * @return A stream which reads from {@code in}, and does nothing when closed.
+     */
+    static InputStream uncloseable(InputStream in) {
+        return new FilterInputStream(in) {
+
+            @Override
+            public void close() {
+
+            }
+        };
+    }
+
+    /**
+     * @param buffer The buffer, which is read from its position to its limit.
+     * @return A stream which reads the buffer.
+     */
+    static InputStream of(ByteBuffer buffer) {
+        return new InputStream() {
+
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) return 0;
+                if (!buffer.hasRemaining()) return -1;
+
+                var count = Math.min(len, buffer.remaining());
+                buffer.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                var count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+                buffer.position(buffer.position() + count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+}
@@ -0,0 +1,582 @@
+package dev.efnilite.neoschematic;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Location;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The waypoints of a {@link Schematic}, relative to its minimum corner. Waypoints are immutable.
+ * <p>
+ * The waypoints of every name are stored in primitive arrays and are indexed in a grid,
+ * where the size of the cells depends on how far apart the waypoints are, so {@link #nearest(String, double, double, double)} and {@link #within(String, BoundingBox, int[])}
+ * only look at nearby waypoints, and do not allocate anything. Waypoints are identified by their index,
+ * and their coordinates can be read with {@link #getX(String, int)} and similar methods.
+ *
+ * <pre>{@code
+ * var waypoints = schematic.getIndexedWaypoints();
+ * var index = waypoints.nearest("checkpoint", x - pastedX, y - pastedY, z - pastedZ);
+ * }</pre>
+ */
+public final class Waypoints {
+
+    private static final Waypoints EMPTY = new Waypoints(Map.of());
+
+    private static final int MIN_CELL_SHIFT = 2;
+    private static final int MAX_CELL_SHIFT = 12;
+    private static final int KEY_BITS = 21;
+    private static final int KEY_OFFSET = 1 << (KEY_BITS - 1);
+
+    private final Map<String, Group> groups;
+    private volatile Map<String, List<Location>> locations;
+
+    private Waypoints(Map<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * @return Waypoints without any names.
+     */
+    @NotNull
+    public static Waypoints empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param waypoints The waypoints by name, relative to the minimum corner of the schematic. Worlds are ignored.
+     * @return The indexed waypoints.
+     */
+    @NotNull
+    public static Waypoints of(@NotNull Map<String, List<Location>> waypoints) {
+        Preconditions.checkNotNull(waypoints, "Waypoints are null");
+
+        var builder = new Builder();
+        waypoints.forEach((name, locations) -> {
+            builder.add(name);
+
+            for (var location : locations) {
+                builder.add(name, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+            }
+        });
+
+        return builder.build();
+    }
+
+    /**
+     * @return The names of the waypoints.
+     */
+    @NotNull
+    @UnmodifiableView
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(groups.keySet());
+    }
+
+    /**
+     * @param name The name of the waypoints.
+     * @return The number of waypoints with this name, which is 0 if there are none.
+     */
+    public int size(@NotNull String name) {
+        var group = groups.get(name);
+
+        return group == null ? 0 : group.xs.length;
+    }
+
+    /**
+     * @return True if there are no waypoints at all.
+     */
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * @param name  The name of the waypoints.
+     * @param index The index of the waypoint.
+     * @return The x coordinate of the waypoint.
+     * @throws IndexOutOfBoundsException If the waypoint does not exist.
+     */
+    public double getX(@NotNull String name, int index) {
+        return getGroup(name, index).xs[index];
+    }
+
+    /**
+     * @param name  The name of the waypoints.
+     * @param index The index of the waypoint.
+     * @return The y coordinate of the waypoint.
+     * @throws IndexOutOfBoundsException If the waypoint does not exist.
+     */
+    public double getY(@NotNull String name, int index) {
+        return getGroup(name, index).ys[index];
+    }
+
+    /**
+     * @param name  The name of the waypoints.
+     * @param index The index of the waypoint.
+     * @return The z coordinate of the waypoint.
+     * @throws IndexOutOfBoundsException If the waypoint does not exist.
+     */
+    public double getZ(@NotNull String name, int index) {
+        return getGroup(name, index).zs[index];
+    }
+
+    /**
+     * @param name  The name of the waypoints.
+     * @param index The index of the waypoint.
+     * @return The yaw of the waypoint.
+     * @throws IndexOutOfBoundsException If the waypoint does not exist.
+     */
+    public float getYaw(@NotNull String name, int index) {
+        return getGroup(name, index).yaws[index];
+    }
+
+    /**
+     * @param name  The name of the waypoints.
+     * @param index The index of the waypoint.
+     * @return The pitch of the waypoint.
+     * @throws IndexOutOfBoundsException If the waypoint does not exist.
+     */
+    public float getPitch(@NotNull String name, int index) {
+        return getGroup(name, index).pitches[index];
+    }
+
+    /**
+     * @param name  The name of the waypoints.
+     * @param index The index of the waypoint.
+     * @return A new location of the waypoint, without a world.
+     * @throws IndexOutOfBoundsException If the waypoint does not exist.
+     */
+    @NotNull
+    public Location get(@NotNull String name, int index) {
+        var group = getGroup(name, index);
+
+        return new Location(null, group.xs[index], group.ys[index], group.zs[index], group.yaws[index], group.pitches[index]);
+    }
+
+    /**
+     * @param name The name of the waypoints.
+     * @param x    The x coordinate, relative to the minimum corner of the schematic.
+     * @param y    The y coordinate, relative to the minimum corner of the schematic.
+     * @param z    The z coordinate, relative to the minimum corner of the schematic.
+     * @return The index of the waypoint with this name which is closest to the position, or -1 if there are none.
+     */
+    public int nearest(@NotNull String name, double x, double y, double z) {
+        var group = groups.get(name);
+        if (group == null || group.xs.length == 0) {
+            return -1;
+        }
+
+        var cellX = group.cell(x);
+        var cellY = group.cell(y);
+        var cellZ = group.cell(z);
+        var maxRing = Math.max(Math.max(
+                        Math.max(Math.abs(cellX - group.minCellX), Math.abs(cellX - group.maxCellX)),
+                        Math.max(Math.abs(cellY - group.minCellY), Math.abs(cellY - group.maxCellY))),
+                Math.max(Math.abs(cellZ - group.minCellZ), Math.abs(cellZ - group.maxCellZ)));
+
+        var best = -1;
+        var bestDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell in this ring is at least this far away
+            var reach = (double) (ring - 1) * (1 << group.shift);
+            if (ring > 0 && reach * reach > bestDistance) {
+                break;
+            }
+
+            // when rings have more cells than the index, looking at every waypoint is cheaper
+            var side = 2L * ring + 1;
+            if (side * side * side - (side - 2) * (side - 2) * (side - 2) > group.cellKeys.length) {
+                return group.nearest(0, group.xs.length, x, y, z, best, bestDistance);
+            }
+
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dy = -ring; dy <= ring; dy++) {
+                    var edge = Math.abs(dx) == ring || Math.abs(dy) == ring;
+                    var step = edge ? 1 : Math.max(1, 2 * ring);
+
+                    for (int dz = -ring; dz <= ring; dz += step) {
+                        var cell = Arrays.binarySearch(group.cellKeys, key(cellX + dx, cellY + dy, cellZ + dz));
+                        if (cell < 0) {
+                            continue;
+                        }
+
+                        var found = group.nearest(group.cellStarts[cell], group.cellStarts[cell + 1], x, y, z, best, bestDistance);
+                        if (found != best) {
+                            best = found;
+                            bestDistance = group.distance(found, x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds every waypoint with this name inside the box, where the box is relative to the minimum corner
+     * of the schematic, and contains positions like {@link BoundingBox#contains(double, double, double)}.
+     *
+     * @param name   The name of the waypoints.
+     * @param box    The box.
+     * @param result The array which the indices of the waypoints are written to, in no particular order.
+     * @return The number of waypoints inside the box. If this is larger than the length of {@code result},
+     * only the first waypoints are written.
+     */
+    public int within(@NotNull String name, @NotNull BoundingBox box, int @NotNull [] result) {
+        Preconditions.checkNotNull(box, "Box is null");
+        Preconditions.checkNotNull(result, "Result is null");
+
+        var group = groups.get(name);
+        if (group == null) {
+            return 0;
+        }
+
+        var minCellX = Math.max(group.cell(box.getMinX()), group.minCellX);
+        var minCellY = Math.max(group.cell(box.getMinY()), group.minCellY);
+        var minCellZ = Math.max(group.cell(box.getMinZ()), group.minCellZ);
+        var maxCellX = Math.min(group.cell(box.getMaxX()), group.maxCellX);
+        var maxCellY = Math.min(group.cell(box.getMaxY()), group.maxCellY);
+        var maxCellZ = Math.min(group.cell(box.getMaxZ()), group.maxCellZ);
+        if (minCellX > maxCellX || minCellY > maxCellY || minCellZ > maxCellZ) {
+            return 0;
+        }
+
+        // when the box covers more columns than the index has cells, looking at every waypoint is cheaper
+        if ((long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > group.cellKeys.length) {
+            return group.within(0, group.xs.length, box, result, 0);
+        }
+
+        var count = 0;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                var from = Arrays.binarySearch(group.cellKeys, key(cellX, cellY, minCellZ));
+                var to = key(cellX, cellY, maxCellZ);
+
+                for (int cell = from < 0 ? -from - 1 : from; cell < group.cellKeys.length && group.cellKeys[cell] <= to; cell++) {
+                    count = group.within(group.cellStarts[cell], group.cellStarts[cell + 1], box, result, count);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The waypoints as locations without a world. The map is created once and cached.
+     */
+    @NotNull
+    @UnmodifiableView
+    public Map<String, List<Location>> toMap() {
+        var map = locations;
+        if (map != null) {
+            return map;
+        }
+
+        var created = new HashMap<String, List<Location>>();
+        groups.forEach((name, group) -> created.put(name, IntStream.range(0, group.xs.length)
+                .mapToObj(i -> get(name, i))
+                .toList()));
+
+        map = Collections.unmodifiableMap(created);
+        locations = map;
+        return map;
+    }
+
+    /**
+     * @return The bytes these waypoints use on the heap, including the cached map of {@link #toMap()}.
+     */
+    long getHeapBytes() {
+        var bytes = Memory.object(2 * Memory.REFERENCE);
+
+        for (var entry : groups.entrySet()) {
+            var group = entry.getValue();
+            var count = group.xs.length;
+
+            // the map entry, the name and the group
+            bytes += Memory.object(4 + 3 * Memory.REFERENCE) + Memory.string(entry.getKey());
+            bytes += Memory.object(8 * Memory.REFERENCE + 7 * 4)
+                    + 3 * Memory.array(count, 8) + 2 * Memory.array(count, 4)
+                    + Memory.array(group.cellKeys.length, 8) + Memory.array(group.cellStarts.length, 4)
+                    + Memory.array(count, 4);
+        }
+
+        var map = locations;
+        if (map != null) {
+            for (var list : map.values()) {
+                // a location has a world reference, 3 doubles and 2 floats
+                bytes += Memory.array(list.size(), Memory.REFERENCE) + list.size() * Memory.object(Memory.REFERENCE + 3 * 8 + 2 * 4);
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @param out The output.
+     * @throws IOException If the waypoints could not be written.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(groups.size());
+
+        for (var entry : groups.entrySet()) {
+            var group = entry.getValue();
+
+            out.writeUTF(entry.getKey());
+            out.writeInt(group.xs.length);
+            for (int i = 0; i < group.xs.length; i++) {
+                out.writeDouble(group.xs[i]);
+                out.writeDouble(group.ys[i]);
+                out.writeDouble(group.zs[i]);
+                out.writeFloat(group.yaws[i]);
+                out.writeFloat(group.pitches[i]);
+            }
+        }
+    }
+
+    /**
+     * @param in The input.
+     * @return The waypoints written by {@link #write(DataOutput)}.
+     * @throws IOException If the waypoints could not be read.
+     */
+    static Waypoints read(DataInput in) throws IOException {
+        var builder = new Builder();
+
+        var names = in.readInt();
+        if (names < 0) {
+            throw new IOException("Invalid waypoint name count");
+        }
+
+        for (int i = 0; i < names; i++) {
+            var name = in.readUTF();
+            builder.add(name);
+
+            var count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Invalid waypoint count");
+            }
+
+            for (int j = 0; j < count; j++) {
+                var x = in.readDouble();
+                var y = in.readDouble();
+                var z = in.readDouble();
+                if (!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(z)) {
+                    throw new IOException("Invalid waypoint position");
+                }
+
+                builder.add(name, x, y, z, in.readFloat(), in.readFloat());
+            }
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+
+        return toMap().equals(((Waypoints) obj).toMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return toMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private Group getGroup(String name, int index) {
+        var group = groups.get(name);
+        if (group == null || index < 0 || index >= group.xs.length) {
+            throw new IndexOutOfBoundsException("Waypoint " + name + " " + index + " does not exist");
+        }
+
+        return group;
+    }
+
+    // ordered by x, then y, then z, so every cell in a column of z is adjacent
+    private static long key(int cellX, int cellY, int cellZ) {
+        return ((long) (cellX + KEY_OFFSET) << (2 * KEY_BITS))
+                | ((long) (cellY + KEY_OFFSET) << KEY_BITS)
+                | (cellZ + KEY_OFFSET);
+    }
+
+    /**
+     * Collects waypoints before they are indexed.
+     */
+    static final class Builder {
+
+        private final Map<String, List<double[]>> points = new LinkedHashMap<>();
+
+        /**
+         * Adds a name, even if it does not have any waypoints.
+         *
+         * @param name The name of the waypoints.
+         */
+        void add(String name) {
+            points.computeIfAbsent(name, k -> new ArrayList<>());
+        }
+
+        void add(String name, double x, double y, double z, float yaw, float pitch) {
+            points.computeIfAbsent(name, k -> new ArrayList<>()).add(new double[]{x, y, z, yaw, pitch});
+        }
+
+        Waypoints build() {
+            if (points.isEmpty()) {
+                return EMPTY;
+            }
+
+            var groups = new HashMap<String, Group>();
+            points.forEach((name, list) -> groups.put(name, new Group(list)));
+
+            return new Waypoints(groups);
+        }
+    }
+
+    // the waypoints of one name, where the index of a waypoint is its position in the list it was built from
+    private static final class Group {
+
+        private final double[] xs, ys, zs;
+        private final float[] yaws, pitches;
+        private final long[] cellKeys;
+        private final int[] cellStarts;
+        private final int[] order;
+        private final int shift;
+        private final int minCellX, minCellY, minCellZ, maxCellX, maxCellY, maxCellZ;
+
+        private Group(List<double[]> points) {
+            var count = points.size();
+            xs = new double[count];
+            ys = new double[count];
+            zs = new double[count];
+            yaws = new float[count];
+            pitches = new float[count];
+
+            var volume = 1.0;
+            for (int axis = 0; axis < 3; axis++) {
+                var min = Double.POSITIVE_INFINITY;
+                var max = Double.NEGATIVE_INFINITY;
+
+                for (var point : points) {
+                    min = Math.min(min, point[axis]);
+                    max = Math.max(max, point[axis]);
+                }
+                volume *= Math.max(1, max - min);
+            }
+
+            // cells which hold about one waypoint each on average
+            var side = Math.cbrt(volume / Math.max(1, count));
+            shift = Math.max(MIN_CELL_SHIFT, Math.min(MAX_CELL_SHIFT, (int) Math.round(Math.log(side) / Math.log(2))));
+
+            var keys = new long[count];
+            var minX = Integer.MAX_VALUE;
+            var minY = Integer.MAX_VALUE;
+            var minZ = Integer.MAX_VALUE;
+            var maxX = Integer.MIN_VALUE;
+            var maxY = Integer.MIN_VALUE;
+            var maxZ = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                var point = points.get(i);
+                xs[i] = point[0];
+                ys[i] = point[1];
+                zs[i] = point[2];
+                yaws[i] = (float) point[3];
+                pitches[i] = (float) point[4];
+
+                var cellX = cell(xs[i]);
+                var cellY = cell(ys[i]);
+                var cellZ = cell(zs[i]);
+                keys[i] = key(cellX, cellY, cellZ);
+
+                minX = Math.min(minX, cellX);
+                minY = Math.min(minY, cellY);
+                minZ = Math.min(minZ, cellZ);
+                maxX = Math.max(maxX, cellX);
+                maxY = Math.max(maxY, cellY);
+                maxZ = Math.max(maxZ, cellZ);
+            }
+            minCellX = minX;
+            minCellY = minY;
+            minCellZ = minZ;
+            maxCellX = maxX;
+            maxCellY = maxY;
+            maxCellZ = maxZ;
+
+            // waypoints sorted by cell, where the waypoints of cell i are order[cellStarts[i]] until order[cellStarts[i + 1]]
+            order = IntStream.range(0, count).boxed()
+                    .sorted(Comparator.comparingLong(i -> keys[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            var uniqueKeys = new long[count];
+            var starts = new int[count + 1];
+            var cells = 0;
+            for (int i = 0; i < count; i++) {
+                var key = keys[order[i]];
+
+                if (cells == 0 || uniqueKeys[cells - 1] != key) {
+                    uniqueKeys[cells] = key;
+                    starts[cells] = i;
+                    cells++;
+                }
+            }
+            starts[cells] = count;
+
+            cellKeys = Arrays.copyOf(uniqueKeys, cells);
+            cellStarts = Arrays.copyOf(starts, cells + 1);
+        }
+
+        private int cell(double coordinate) {
+            var cell = (int) Math.floor(coordinate) >> shift;
+
+            return Math.max(-KEY_OFFSET, Math.min(KEY_OFFSET - 1, cell));
+        }
+
+        private double distance(int index, double x, double y, double z) {
+            var dx = xs[index] - x;
+            var dy = ys[index] - y;
+            var dz = zs[index] - z;
+
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        // looks at order[from] until order[to], returning best if none of them are closer
+        private int nearest(int from, int to, double x, double y, double z, int best, double bestDistance) {
+            for (int i = from; i < to; i++) {
+                var index = order[i];
+                var distance = distance(index, x, y, z);
+
+                if (distance < bestDistance) {
+                    best = index;
+                    bestDistance = distance;
+                }
+            }
+
+            return best;
+        }
+
+        private int within(int from, int to, BoundingBox box, int[] result, int count) {
+            for (int i = from; i < to; i++) {
+                var index = order[i];
+
+                if (box.contains(xs[index], ys[index], zs[index])) {
+                    if (count < result.length) {
+                        result[count] = index;
+                    }
+                    count++;
+                }
+            }
+
+            return count;
+        }
+    }
+}
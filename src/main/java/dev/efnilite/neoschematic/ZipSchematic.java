@@ -13,28 +13,30 @@ import java.util.zip.ZipOutputStream;
 public class ZipSchematic extends JsonSchematic {
 
     @Override
-    void write(File file, JsonSchematic type) throws IOException {
-        try (var zipOutputStream = new ZipOutputStream(new FileOutputStream(file));
-             var writer = new BufferedWriter(new OutputStreamWriter(zipOutputStream))) {
-            zipOutputStream.putNextEntry(new ZipEntry("schematic.json"));
-
-            GSON.toJson(type, writer);
-            writer.flush();
+    Writer writer(OutputStream out) throws IOException {
+        var zipOutputStream = new ZipOutputStream(out);
 
-            zipOutputStream.closeEntry();
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry("schematic.json"));
+        } catch (IOException e) {
+            zipOutputStream.close();
+            throw e;
         }
+
+        // closing the zip stream also closes the entry
+        return new BufferedWriter(new OutputStreamWriter(zipOutputStream));
     }
 
     @Override
-    JsonSchematic read(File file) throws IOException {
-        try (var zipInputStream = new ZipInputStream(new FileInputStream(file));
-             var reader = new BufferedReader(new InputStreamReader(zipInputStream))) {
-            ZipEntry entry = zipInputStream.getNextEntry();
-            if (entry == null) {
-                throw new IOException("No entries in zip file");
-            }
-
-            return GSON.fromJson(reader, JsonSchematic.class);
+    Reader reader(InputStream in) throws IOException {
+        var zipInputStream = new ZipInputStream(in);
+
+        ZipEntry entry = zipInputStream.getNextEntry();
+        if (entry == null) {
+            zipInputStream.close();
+            throw new IOException("No entries in zip file");
         }
+
+        return new BufferedReader(new InputStreamReader(zipInputStream));
     }
 }
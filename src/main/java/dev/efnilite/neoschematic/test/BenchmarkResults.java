@@ -0,0 +1,41 @@
+package dev.efnilite.neoschematic.test;
+
+import java.util.List;
+
+public record BenchmarkResults(
+        String minecraftVersion,
+        String javaVersion,
+        int iterations,
+        List<Entry> entries
+) {
+
+    /**
+     * @param type               The file extension of the file type.
+     * @param schematic          The name of the schematic.
+     * @param blocks             The number of blocks of the schematic.
+     * @param fileBytes          The size of the file.
+     * @param saveMillis         The median time to save.
+     * @param loadMillis         The median time to load.
+     * @param saveAllocatedBytes The average number of bytes allocated by a save.
+     * @param loadAllocatedBytes The average number of bytes allocated by a load.
+     * @param allocationRate     The number of bytes allocated per second while saving and loading.
+     * @param peakHeapBytes      The highest heap usage while saving and loading, above the usage before.
+     */
+    public record Entry(
+            String type,
+            String schematic,
+            long blocks,
+            long fileBytes,
+            double saveMillis,
+            double loadMillis,
+            long saveAllocatedBytes,
+            long loadAllocatedBytes,
+            double allocationRate,
+            long peakHeapBytes
+    ) {
+
+        public String key() {
+            return type + "/" + schematic;
+        }
+    }
+}
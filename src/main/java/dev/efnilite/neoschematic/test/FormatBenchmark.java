@@ -0,0 +1,237 @@
+package dev.efnilite.neoschematic.test;
+
+import dev.efnilite.neoschematic.FileType;
+import dev.efnilite.neoschematic.Schematic;
+import dev.efnilite.neoschematic.SchematicBuilder;
+import dev.efnilite.neoschematic.SchematicLibrary;
+import org.bukkit.Bukkit;
+import org.bukkit.util.Vector;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Saves and loads a corpus of schematics with every {@link SchematicLibrary#defaultTypes() registered file type}.
+ * The corpus contains generated schematics, and every schematic in the {@code benchmark} directory of the server.
+ */
+public class FormatBenchmark {
+
+    public static final String PROPERTY = "neoschematic.benchmark";
+
+    // generated schematics are prefixed, and real schematics keep their extension, so no keys collide
+    private static final String GENERATED = "generated-";
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+    private static final List<String> MIXED = List.of(
+            "minecraft:stone", "minecraft:granite", "minecraft:diorite", "minecraft:andesite",
+            "minecraft:dirt", "minecraft:gravel", "minecraft:oak_planks", "minecraft:spruce_planks",
+            "minecraft:oak_log[axis=y]", "minecraft:oak_log[axis=x]", "minecraft:glass",
+            "minecraft:oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:oak_stairs[facing=east,half=top,shape=straight,waterlogged=false]",
+            "minecraft:stone_bricks", "minecraft:cobblestone", "minecraft:air");
+
+    private final Logger logger;
+    private final Path directory;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * @param logger    The logger to report progress to.
+     * @param directory The directory which contains the real schematics, and where files are written to.
+     */
+    public FormatBenchmark(Logger logger, Path directory) {
+        this.logger = logger;
+        this.directory = directory;
+    }
+
+    /**
+     * Forced writes are turned off while the benchmark runs, since they measure the disk rather than the file type.
+     *
+     * @return The results of every file type and schematic.
+     * @see Schematic#setForceWrites(boolean)
+     */
+    public BenchmarkResults run() throws IOException {
+        var force = Schematic.isForceWrites();
+        Schematic.setForceWrites(false);
+        try {
+            return runUnforced();
+        } finally {
+            Schematic.setForceWrites(force);
+        }
+    }
+
+    private BenchmarkResults runUnforced() throws IOException {
+        var types = new TreeMap<>(SchematicLibrary.defaultTypes());
+        var corpus = new LinkedHashMap<String, Schematic>();
+        corpus.putAll(generate());
+        corpus.putAll(read(types));
+
+        var output = Files.createDirectories(directory.resolve("output"));
+        var entries = new ArrayList<BenchmarkResults.Entry>();
+
+        for (var type : types.entrySet()) {
+            for (var schematic : corpus.entrySet()) {
+                logger.info("Benchmarking %s with %s".formatted(schematic.getKey(), type.getKey()));
+
+                var file = output.resolve(schematic.getKey() + "." + type.getKey()).toFile();
+                entries.add(measure(type.getKey(), type.getValue().get(), schematic.getKey(), schematic.getValue(), file));
+            }
+        }
+
+        return new BenchmarkResults(Bukkit.getBukkitVersion(), System.getProperty("java.version"), ITERATIONS, entries);
+    }
+
+    private BenchmarkResults.Entry measure(String typeName, FileType type, String name, Schematic schematic, File file) {
+        for (int i = 0; i < WARMUP; i++) {
+            save(type, schematic, file);
+            load(type, file);
+        }
+
+        var pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+
+        System.gc();
+        var before = pools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        var thread = Thread.currentThread().getId();
+        var saves = new long[ITERATIONS];
+        var loads = new long[ITERATIONS];
+        long saveAllocated = 0;
+        long loadAllocated = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            var allocated = threads.getThreadAllocatedBytes(thread);
+            var start = System.nanoTime();
+            save(type, schematic, file);
+            saves[i] = System.nanoTime() - start;
+            saveAllocated += threads.getThreadAllocatedBytes(thread) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            var loaded = load(type, file);
+            loads[i] = System.nanoTime() - start;
+            loadAllocated += threads.getThreadAllocatedBytes(thread) - allocated;
+
+            if (i == 0 && !schematic.equals(loaded)) {
+                throw new IllegalStateException("Loaded schematic %s differs with %s".formatted(name, typeName));
+            }
+        }
+
+        // pools may peak at different times, so this is an upper bound
+        var peak = pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        var seconds = (Arrays.stream(saves).sum() + Arrays.stream(loads).sum()) / 1_000_000_000.0;
+        var size = schematic.getDimensions();
+
+        return new BenchmarkResults.Entry(typeName, name,
+                (long) size.getBlockX() * size.getBlockY() * size.getBlockZ(),
+                file.length(),
+                median(saves), median(loads),
+                saveAllocated / ITERATIONS, loadAllocated / ITERATIONS,
+                (saveAllocated + loadAllocated) / seconds,
+                Math.max(0, peak - before));
+    }
+
+    private static void save(FileType type, Schematic schematic, File file) {
+        if (!type.save(schematic, file)) {
+            throw new IllegalStateException("Failed to save " + file);
+        }
+    }
+
+    private static Schematic load(FileType type, File file) {
+        var schematic = type.load(file);
+        if (schematic == null) {
+            throw new IllegalStateException("Failed to load " + file);
+        }
+
+        return schematic;
+    }
+
+    private static double median(long[] nanos) {
+        var sorted = nanos.clone();
+        Arrays.sort(sorted);
+
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+
+    // seeded, so every run uses the same schematics
+    private static Map<String, Schematic> generate() {
+        var corpus = new LinkedHashMap<String, Schematic>();
+        var random = new Random(0);
+        var mixed = MIXED.stream().map(Bukkit::createBlockData).toList();
+        var stone = Bukkit.createBlockData("minecraft:stone");
+
+        corpus.put(GENERATED + "solid", new SchematicBuilder(new Vector(64, 64, 64))
+                .fill(0, 0, 0, 63, 63, 63, stone)
+                .build());
+
+        var terrain = new SchematicBuilder(new Vector(64, 64, 64))
+                .fill(0, 0, 0, 63, 27, 63, stone)
+                .fill(0, 28, 0, 63, 30, 63, Bukkit.createBlockData("minecraft:dirt"))
+                .fill(0, 31, 0, 63, 31, 63, Bukkit.createBlockData("minecraft:grass_block[snowy=false]"));
+        var ores = Stream.of("minecraft:coal_ore", "minecraft:iron_ore", "minecraft:gold_ore", "minecraft:diamond_ore")
+                .map(Bukkit::createBlockData)
+                .toList();
+        for (int i = 0; i < 2048; i++) {
+            terrain.set(random.nextInt(64), random.nextInt(28), random.nextInt(64), ores.get(random.nextInt(ores.size())));
+        }
+        corpus.put(GENERATED + "terrain", terrain.build());
+
+        var noise = new SchematicBuilder(new Vector(32, 32, 32));
+        for (int x = 0; x < 32; x++) {
+            for (int y = 0; y < 32; y++) {
+                for (int z = 0; z < 32; z++) {
+                    noise.set(x, y, z, mixed.get(random.nextInt(mixed.size())));
+                }
+            }
+        }
+        corpus.put(GENERATED + "noise", noise.build());
+
+        var sparse = new SchematicBuilder(new Vector(128, 32, 128));
+        for (int i = 0; i < 1024; i++) {
+            sparse.set(random.nextInt(128), random.nextInt(32), random.nextInt(128), mixed.get(random.nextInt(mixed.size())));
+        }
+        corpus.put(GENERATED + "sparse", sparse.build());
+
+        return corpus;
+    }
+
+    private Map<String, Schematic> read(Map<String, Supplier<FileType>> types) throws IOException {
+        var corpus = new TreeMap<String, Schematic>();
+        if (!Files.isDirectory(directory)) {
+            return corpus;
+        }
+
+        try (var files = Files.list(directory)) {
+            for (var file : files.filter(Files::isRegularFile).toList()) {
+                var name = file.getFileName().toString();
+                var dot = name.lastIndexOf('.');
+                var type = dot < 0 ? null : types.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+
+                if (type == null) {
+                    continue;
+                }
+
+                var schematic = type.get().load(file.toFile());
+                if (schematic == null) {
+                    logger.warning("Skipping unreadable schematic " + name);
+                    continue;
+                }
+
+                corpus.put(name, schematic);
+            }
+        }
+
+        return corpus;
+    }
+}
@@ -13,6 +13,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -20,11 +21,20 @@ import java.util.stream.Stream;
 public class TestPlatform {
 
     private static final String SERVER_JAR_NAME = "server.jar";
+    private static final String BASELINE_NAME = "benchmark-baseline.json";
+
+    // how much worse than the baseline a result may be before it is a regression
+    private static final double SIZE_TOLERANCE = 1.05;
+    private static final double TIME_TOLERANCE = 1.5;
+    private static final double ALLOCATION_TOLERANCE = 1.25;
+    // times below this many milliseconds of difference are timer noise, whatever the ratio
+    private static final double TIME_FLOOR = 5;
 
     private static String version;
     private static Path path;
     private static Path testPath;
     private static Path testResourcesPath;
+    private static boolean benchmark;
 
     public static void main(String[] args) {
         System.out.println("Initializing test platform");
@@ -33,11 +43,13 @@ public class TestPlatform {
         path = Path.of(args[1]);
         testPath = Path.of(args[2]);
         testResourcesPath = Path.of(args[3]);
+        benchmark = args.length > 4 && args[4].equals("benchmark");
 
         System.out.println("Version: " + version);
         System.out.println("Path: " + path);
         System.out.println("Test path: " + testPath);
         System.out.println("Test resources path: " + testResourcesPath);
+        System.out.println("Benchmark: " + benchmark);
 
         try {
             createServer();
@@ -64,6 +76,17 @@ public class TestPlatform {
             });
         }
 
+        Path corpus = testResourcesPath.resolve("benchmark");
+        if (benchmark && Files.isDirectory(corpus)) {
+            Path target = Files.createDirectories(path.resolve("benchmark"));
+
+            try (Stream<Path> files = Files.list(corpus)) {
+                for (Path file : files.toList()) {
+                    Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+
         String jarSource = getServerJarSource();
         try (InputStream is = new URL(jarSource).openStream()) {
             Files.copy(is, path.resolve(SERVER_JAR_NAME), StandardCopyOption.REPLACE_EXISTING);
@@ -105,6 +128,9 @@ public class TestPlatform {
         args.add("-ea");
         args.add("-Dcom.mojang.eula.agree=true");
         args.add("-Ddisable.watchdog=true");
+        if (benchmark) {
+            args.add("-D" + FormatBenchmark.PROPERTY + "=true");
+        }
 
         args.add("-jar");
         args.add(SERVER_JAR_NAME);
@@ -123,6 +149,11 @@ public class TestPlatform {
         if (code != 0)
             throw new IOException("Environment returned with code " + code);
 
+        if (benchmark) {
+            reportBenchmark();
+            return;
+        }
+
         TestResults results;
         try (BufferedReader reader = Files.newBufferedReader(path.resolve("test-results.json"))) {
             results = new Gson().fromJson(reader, TestResults.class);
@@ -161,4 +192,85 @@ public class TestPlatform {
 
         System.exit(results.failed() > 0 ? -1 : 0);
     }
+
+    private static void reportBenchmark() throws IOException {
+        BenchmarkResults results;
+        try (BufferedReader reader = Files.newBufferedReader(path.resolve("benchmark-results.json"))) {
+            results = new Gson().fromJson(reader, BenchmarkResults.class);
+        } catch (IOException ex) {
+            throw new IOException("Failed to read benchmark: " + ex);
+        }
+
+        System.out.println("========== Benchmark report ==========");
+        System.out.println();
+        System.out.println("Minecraft " + results.minecraftVersion() + ", Java " + results.javaVersion()
+                + ", " + results.iterations() + " iterations");
+        System.out.println();
+        System.out.printf("%-6s %-16s %10s %12s %10s %10s %12s %12s %12s %12s%n", "Type", "Schematic", "Blocks",
+                "Size (B)", "Save (ms)", "Load (ms)", "Save alloc", "Load alloc", "Alloc (MB/s)", "Peak (MB)");
+        for (BenchmarkResults.Entry entry : results.entries()) {
+            System.out.printf("%-6s %-16s %10d %12d %10.2f %10.2f %12d %12d %12.1f %12.1f%n", entry.type(),
+                    entry.schematic(), entry.blocks(), entry.fileBytes(), entry.saveMillis(), entry.loadMillis(),
+                    entry.saveAllocatedBytes(), entry.loadAllocatedBytes(), entry.allocationRate() / 1_000_000,
+                    entry.peakHeapBytes() / 1_000_000.0);
+        }
+        System.out.println();
+        System.out.println("Report: " + path.resolve("benchmark-results.json").toAbsolutePath());
+
+        Path baselinePath = testResourcesPath.resolve(BASELINE_NAME);
+        if (!Files.exists(baselinePath)) {
+            Files.copy(path.resolve("benchmark-results.json"), baselinePath);
+            System.out.println("No baseline found, saved this report as " + baselinePath);
+            System.out.println("========== Benchmark report ==========");
+            return;
+        }
+
+        BenchmarkResults baseline;
+        try (BufferedReader reader = Files.newBufferedReader(baselinePath)) {
+            baseline = new Gson().fromJson(reader, BenchmarkResults.class);
+        }
+
+        List<String> regressions = compare(baseline, results);
+
+        PrintStream out = regressions.isEmpty() ? System.out : System.err;
+        out.println("Regressions against " + baselinePath + ": " + regressions.size());
+        for (String regression : regressions) {
+            out.println("\t" + regression);
+        }
+        out.println("========== Benchmark report ==========");
+
+        System.exit(regressions.isEmpty() ? 0 : -1);
+    }
+
+    // peak heap depends on when the collector runs, so it is reported but not compared
+    private static List<String> compare(BenchmarkResults baseline, BenchmarkResults results) {
+        Map<String, BenchmarkResults.Entry> previous = new HashMap<>();
+        for (BenchmarkResults.Entry entry : baseline.entries()) {
+            previous.put(entry.key(), entry);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (BenchmarkResults.Entry entry : results.entries()) {
+            BenchmarkResults.Entry old = previous.get(entry.key());
+            if (old == null) {
+                continue;
+            }
+
+            check(regressions, entry.key(), "size", old.fileBytes(), entry.fileBytes(), SIZE_TOLERANCE, 0);
+            check(regressions, entry.key(), "save time", old.saveMillis(), entry.saveMillis(), TIME_TOLERANCE, TIME_FLOOR);
+            check(regressions, entry.key(), "load time", old.loadMillis(), entry.loadMillis(), TIME_TOLERANCE, TIME_FLOOR);
+            check(regressions, entry.key(), "save allocations", old.saveAllocatedBytes(), entry.saveAllocatedBytes(), ALLOCATION_TOLERANCE, 0);
+            check(regressions, entry.key(), "load allocations", old.loadAllocatedBytes(), entry.loadAllocatedBytes(), ALLOCATION_TOLERANCE, 0);
+        }
+
+        return regressions;
+    }
+
+    private static void check(List<String> regressions, String key, String metric, double old, double current,
+                              double tolerance, double floor) {
+        if (current > old * tolerance && current - old > floor) {
+            regressions.add("%s %s: %.2f -> %.2f (+%.0f%%)".formatted(key, metric, old, current, (current / old - 1) * 100));
+        }
+    }
+
 }
@@ -1,6 +1,7 @@
 package dev.efnilite.neoschematic.test;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.junit.runner.JUnitCore;
@@ -22,6 +23,11 @@ public class TestPlugin extends JavaPlugin {
 
     @Override
     public void onEnable() {
+        if (Boolean.getBoolean(FormatBenchmark.PROPERTY)) {
+            runBenchmark();
+            return;
+        }
+
         getLogger().info("Starting tests...");
 
         Result result;
@@ -62,6 +68,20 @@ public class TestPlugin extends JavaPlugin {
         Bukkit.getPluginManager().disablePlugin(this);
     }
 
+    private void runBenchmark() {
+        getLogger().info("Starting benchmark...");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(Path.of("benchmark-results.json"))) {
+            var results = new FormatBenchmark(getLogger(), Path.of("benchmark")).run();
+
+            new GsonBuilder().setPrettyPrinting().create().toJson(results, writer);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            Bukkit.getPluginManager().disablePlugin(this);
+        }
+    }
+
     @Override
     public void onDisable() {
         getLogger().info("Shutting down server...");
@@ -0,0 +1,222 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.util.Vector;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the per-block cost of the hot paths. Allocations are measured on the current thread, and paths which
+ * read or place blocks are compared against a loop which makes the same calls to the server,
+ * so only the allocations of this library count against the budget.
+ */
+public class AllocationTest {
+
+    // a boxed short or a location per block is 16 bytes or more
+    private static final double REGION_BYTES_PER_BLOCK = 8;
+    private static final double PASTE_BYTES_PER_BLOCK = 8;
+    private static final double ITERATE_BYTES_PER_BLOCK = 0.05;
+    private static final double DECODE_BYTES_PER_CHAR = 0.05;
+    // one string of one character, with or without compact strings
+    private static final double ENCODE_BYTES_PER_CHAR = 56;
+
+    // loose, so only a change in complexity fails
+    private static final double REGION_NANOS_PER_BLOCK = 2_000;
+    private static final double PASTE_NANOS_PER_BLOCK = 20_000;
+    private static final double CHAR_NANOS = 200;
+
+    private static final int RUNS = 5;
+    private static final int MIN = 64;
+    private static final int SIZE_X = 32, SIZE_Y = 16, SIZE_Z = 32;
+    private static final int BLOCKS = SIZE_X * SIZE_Y * SIZE_Z;
+    private static final int CHARS = 4096;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static World world;
+    private static Schematic schematic;
+
+    @BeforeClass
+    public static void placeRegion() {
+        world = Bukkit.getWorlds().get(0);
+
+        var materials = List.of(Material.STONE, Material.DIRT, Material.OAK_PLANKS, Material.GLASS, Material.AIR);
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int y = 0; y < SIZE_Y; y++) {
+                for (int z = 0; z < SIZE_Z; z++) {
+                    world.getBlockAt(MIN + x, MIN + y, MIN + z).setType(materials.get((x + y * 3 + z * 7) % materials.size()));
+                }
+            }
+        }
+
+        schematic = Schematic.create(corner(0, 0, 0), corner(SIZE_X - 1, SIZE_Y - 1, SIZE_Z - 1));
+    }
+
+    @AfterClass
+    public static void clearRegion() {
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int y = 0; y < SIZE_Y; y++) {
+                for (int z = 0; z < SIZE_Z; z++) {
+                    world.getBlockAt(MIN + x, MIN + y, MIN + z).setType(Material.AIR);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRegion() {
+        var baseline = measure(() -> {
+            for (int x = MIN; x < MIN + SIZE_X; x++) {
+                for (int y = MIN; y < MIN + SIZE_Y; y++) {
+                    for (int z = MIN; z < MIN + SIZE_Z; z++) {
+                        world.getBlockAt(x, y, z).getBlockData().hashCode();
+                    }
+                }
+            }
+        });
+        var measured = measure(() -> Schematic.create(corner(0, 0, 0), corner(SIZE_X - 1, SIZE_Y - 1, SIZE_Z - 1)));
+
+        check("region", measured.minus(baseline), BLOCKS, REGION_BYTES_PER_BLOCK, REGION_NANOS_PER_BLOCK);
+    }
+
+    @Test
+    public void testIterate() {
+        // more palette entries than the cache of boxed shorts, so boxing every block would allocate
+        var states = new ArrayList<BlockData>();
+        for (var stairs : List.of("oak_stairs", "spruce_stairs")) {
+            for (var facing : List.of("north", "east", "south", "west")) {
+                for (var half : List.of("top", "bottom")) {
+                    for (var shape : List.of("straight", "inner_left", "inner_right", "outer_left", "outer_right")) {
+                        for (var waterlogged : List.of("true", "false")) {
+                            states.add(Bukkit.createBlockData("minecraft:%s[facing=%s,half=%s,shape=%s,waterlogged=%s]"
+                                    .formatted(stairs, facing, half, shape, waterlogged)));
+                        }
+                    }
+                }
+            }
+        }
+
+        var builder = new SchematicBuilder(new Vector(SIZE_X, SIZE_Y, SIZE_Z));
+        var i = 0;
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int y = 0; y < SIZE_Y; y++) {
+                for (int z = 0; z < SIZE_Z; z++) {
+                    builder.set(x, y, z, states.get(i++ % states.size()));
+                }
+            }
+        }
+        var varied = builder.build();
+        assertTrue(varied.getPalette().size() > 128);
+
+        var measured = measure(() -> {
+            var sum = 0;
+            for (short block : varied.getBlocks()) {
+                sum += block;
+            }
+            assertTrue(sum >= 0);
+        });
+
+        check("iterate", measured, BLOCKS, ITERATE_BYTES_PER_BLOCK, REGION_NANOS_PER_BLOCK);
+    }
+
+    @Test
+    public void testPaste() {
+        // the region already contains the schematic, so both loops only replace blocks with the same data
+        var data = new BlockData[BLOCKS];
+        for (int i = 0; i < BLOCKS; i++) {
+            data[i] = schematic.getPalette().get(schematic.getBlocks().get(i));
+        }
+
+        var baseline = measure(() -> {
+            var blocks = new ArrayList<Block>();
+            var i = 0;
+
+            for (int x = MIN; x < MIN + SIZE_X; x++) {
+                for (int y = MIN; y < MIN + SIZE_Y; y++) {
+                    for (int z = MIN; z < MIN + SIZE_Z; z++) {
+                        var block = world.getBlockAt(x, y, z);
+                        block.setBlockData(data[i++]);
+                        blocks.add(block);
+                    }
+                }
+            }
+        });
+        var measured = measure(() -> schematic.paste(corner(0, 0, 0), false));
+
+        check("paste", measured.minus(baseline), BLOCKS, PASTE_BYTES_PER_BLOCK, PASTE_NANOS_PER_BLOCK);
+    }
+
+    @Test
+    public void testChars() {
+        var type = new JsonSchematic();
+
+        var decode = measure(() -> {
+            var sum = 0;
+            for (int i = 0; i < CHARS; i++) {
+                sum += type.fromChar(JsonSchematic.encode((short) i));
+            }
+            assertTrue(sum > 0);
+        });
+        var encode = measure(() -> {
+            var length = 0;
+            for (int i = 0; i < CHARS; i++) {
+                length += type.getChar((short) i).length();
+            }
+            assertTrue(length > 0);
+        });
+
+        check("fromChar", decode, CHARS, DECODE_BYTES_PER_CHAR, CHAR_NANOS);
+        check("getChar", encode, CHARS, ENCODE_BYTES_PER_CHAR, CHAR_NANOS);
+    }
+
+    private static Location corner(int x, int y, int z) {
+        return new Location(world, MIN + x, MIN + y, MIN + z);
+    }
+
+    // the fewest bytes and the shortest time of every run, after a run to load classes and chunks
+    private static Cost measure(Runnable runnable) {
+        runnable.run();
+
+        var bytes = Long.MAX_VALUE;
+        var nanos = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            var allocated = THREADS.getCurrentThreadAllocatedBytes();
+            var start = System.nanoTime();
+            runnable.run();
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            bytes = Math.min(bytes, THREADS.getCurrentThreadAllocatedBytes() - allocated);
+        }
+
+        return new Cost(bytes, nanos);
+    }
+
+    private static void check(String name, Cost cost, int count, double bytesBudget, double nanosBudget) {
+        var bytes = Math.max(0, cost.bytes()) / (double) count;
+        var nanos = cost.nanos() / (double) count;
+
+        assertTrue("%s allocates %.2f bytes per item, budget is %.2f".formatted(name, bytes, bytesBudget),
+                bytes <= bytesBudget);
+        assertTrue("%s takes %.0f ns per item, budget is %.0f".formatted(name, nanos, nanosBudget),
+                nanos <= nanosBudget);
+    }
+
+    private record Cost(long bytes, long nanos) {
+
+        Cost minus(Cost baseline) {
+            return new Cost(bytes - baseline.bytes, nanos);
+        }
+    }
+}
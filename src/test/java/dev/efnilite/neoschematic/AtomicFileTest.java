@@ -0,0 +1,54 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AtomicFileTest {
+
+    @Test
+    public void testReplace() throws IOException {
+        var directory = Files.createTempDirectory("atomic");
+        var file = directory.resolve("schematic.json").toFile();
+        var first = new SchematicBuilder(new Vector(2, 2, 2)).build();
+        var second = new SchematicBuilder(new Vector(3, 3, 3)).build();
+
+        assertTrue(first.save(file));
+        assertTrue(second.save(file));
+
+        assertEquals(second, Schematic.load(file));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testFailedWrite() throws IOException {
+        var directory = Files.createTempDirectory("atomic");
+        var file = directory.resolve("file.txt");
+        AtomicFile.write(file, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+
+        try {
+            AtomicFile.write(file, out -> {
+                out.write("second".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("Failed halfway");
+            });
+            fail("Write did not fail");
+        } catch (IOException expected) {
+
+        }
+
+        // the old contents are kept, and the temporary file is removed
+        assertEquals("first", Files.readString(file, StandardCharsets.UTF_8));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactSchematicTest extends TestRunner {
+
+    @Override
+    protected Schematic getSchematic() {
+        placeBlocks();
+
+        var saved = Schematic.create(
+                new Location(getWorld(), 0, 0, 0),
+                new Location(getWorld(), 1, 0, 1),
+                Map.of("waypoint", List.of(new Location(getWorld(), 10, 5, -10))));
+
+        UUID uuid = UUID.randomUUID();
+        saved.save(uuid + ".nsc", new CompactSchematic());
+
+        assertTrue(Files.exists(Path.of(uuid + ".nsc")));
+
+        resetBlocks();
+
+        return Schematic.load(uuid + ".nsc", new CompactSchematic());
+    }
+
+    @Test
+    public void testDictionaryIsUnchanged() {
+        var crc = new CRC32();
+        crc.update(CompactSchematic.DICTIONARY_1);
+
+        // every saved file is compressed with this dictionary
+        assertEquals(11257, CompactSchematic.DICTIONARY_1.length);
+        assertEquals(0x32e44b9bL, crc.getValue());
+    }
+
+    @Test
+    public void testSmallerThanJson() {
+        var random = new Random(0);
+        var stone = Bukkit.createBlockData("minecraft:stone");
+        var planks = Bukkit.createBlockData("minecraft:oak_planks");
+        var builder = new SchematicBuilder(new Vector(32, 32, 32))
+                .fill(0, 0, 0, 31, 11, 31, stone)
+                .fill(0, 12, 0, 31, 13, 31, Bukkit.createBlockData("minecraft:dirt"))
+                .fill(0, 14, 0, 31, 14, 31, Bukkit.createBlockData("minecraft:grass_block[snowy=false]"))
+                .fill(8, 15, 8, 23, 22, 23, planks)
+                .fill(9, 15, 9, 22, 21, 22, Bukkit.createBlockData("minecraft:air"));
+        var ores = List.of(Bukkit.createBlockData("minecraft:coal_ore"), Bukkit.createBlockData("minecraft:iron_ore"));
+        for (int i = 0; i < 256; i++) {
+            builder.set(random.nextInt(32), random.nextInt(12), random.nextInt(32), ores.get(random.nextInt(ores.size())));
+        }
+        var schematic = builder.build();
+
+        var compact = new ByteArrayOutputStream();
+        var json = new ByteArrayOutputStream();
+        assertTrue(new CompactSchematic().save(schematic, compact));
+        assertTrue(new JsonSchematic().save(schematic, json));
+
+        assertTrue(compact.size() < json.size());
+        assertEquals(schematic, new CompactSchematic().load(new ByteArrayInputStream(compact.toByteArray())));
+    }
+
+    @Test
+    public void testCorruptWaypoints() {
+        var schematic = new SchematicBuilder(new Vector(2, 2, 2)).build();
+        var out = new ByteArrayOutputStream();
+        assertTrue(new CompactSchematic().save(schematic, out));
+        var bytes = out.toByteArray();
+        assertNotNull(new CompactSchematic().load(new ByteArrayInputStream(bytes)));
+
+        // magic, format version, dictionary version, data version, Minecraft version, dimensions and palette size
+        var names = 4 + 1 + 2 + 4 + 2 + schematic.getMinecraftVersion().getBytes(StandardCharsets.UTF_8).length + 3 * 4 + 4;
+        ByteBuffer.wrap(bytes).putInt(names, -1);
+
+        assertNull(new CompactSchematic().load(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,71 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ComposeTest {
+
+    private final Schematic floor = new SchematicBuilder(new Vector(4, 1, 4))
+            .fill(0, 0, 0, 3, 0, 3, Material.STONE.createBlockData())
+            .addWaypoint("spawn", new Location(null, 1, 1, 1))
+            .build();
+
+    private final Schematic pillar = new SchematicBuilder(new Vector(1, 3, 1))
+            .fill(0, 0, 0, 0, 2, 0, Material.OAK_LOG.createBlockData())
+            .build();
+
+    @Test
+    public void testCompose() {
+        var composed = Schematic.compose(List.of(
+                new Placement(floor, new Vector(10, 64, 10)),
+                new Placement(pillar, new Vector(13, 64, 13))));
+
+        assertEquals(new Vector(4, 3, 4), composed.getDimensions());
+        assertEquals(Material.STONE, composed.getBlockData(0, 0, 0).getMaterial());
+        assertEquals(Material.OAK_LOG, composed.getBlockData(3, 0, 3).getMaterial());
+        assertEquals(Material.OAK_LOG, composed.getBlockData(3, 2, 3).getMaterial());
+        assertEquals(Material.AIR, composed.getBlockData(0, 2, 0).getMaterial());
+        assertEquals(new Location(null, 1, 1, 1), composed.getWaypoints().get("spawn").get(0));
+    }
+
+    @Test
+    public void testOffsetWaypoints() {
+        // the pillar comes first, so the floor and its waypoint move by one block
+        var composed = Schematic.compose(List.of(
+                new Placement(pillar, new Vector(9, 64, 9)),
+                new Placement(floor, new Vector(10, 64, 10))));
+
+        assertEquals(new Vector(5, 3, 5), composed.getDimensions());
+        assertEquals(Material.OAK_LOG, composed.getBlockData(0, 0, 0).getMaterial());
+        assertEquals(Material.STONE, composed.getBlockData(1, 0, 1).getMaterial());
+        assertEquals(new Location(null, 2, 1, 2), composed.getWaypoints().get("spawn").get(0));
+    }
+
+    @Test
+    public void testSkipAir() {
+        var air = new SchematicBuilder(new Vector(4, 1, 4)).build();
+
+        var replaced = Schematic.compose(List.of(new Placement(floor, new Vector()), new Placement(air, new Vector())));
+        var kept = Schematic.compose(List.of(new Placement(floor, new Vector()), new Placement(air, new Vector())), true);
+
+        assertEquals(Material.AIR, replaced.getBlockData(1, 0, 1).getMaterial());
+        assertEquals(Material.STONE, kept.getBlockData(1, 0, 1).getMaterial());
+    }
+
+    @Test
+    public void testEmpty() {
+        try {
+            Schematic.compose(List.of());
+            fail("Composed nothing");
+        } catch (IllegalArgumentException expected) {
+
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Material;
+import org.bukkit.util.BoundingBox;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    private final Schematic schematic = new SchematicBuilder(new Vector(4, 2, 4))
+            .fill(1, 0, 1, 2, 0, 2, Material.STONE.createBlockData())
+            .set(3, 1, 3, Material.CHEST.createBlockData())
+            .build();
+
+    @Test
+    public void testCounts() {
+        var histogram = schematic.getHistogram();
+
+        assertEquals(1, histogram.getCount(Material.CHEST));
+        assertEquals(4, histogram.getCount(Material.STONE.createBlockData()));
+        assertEquals(0, histogram.getCount(Material.DIRT));
+        assertEquals(5, histogram.getNonAirCount());
+        assertEquals(4 * 2 * 4 - 5, histogram.getCount(Material.AIR));
+    }
+
+    @Test
+    public void testBounds() {
+        var histogram = schematic.getHistogram();
+        var stone = schematic.getPalette().indexOf(Material.STONE.createBlockData());
+
+        assertEquals(new BoundingBox(1, 0, 1, 3, 1, 3), histogram.getBounds(stone));
+        assertEquals(new BoundingBox(1, 0, 1, 4, 2, 4), histogram.getNonAirBounds());
+        assertNull(new SchematicBuilder(new Vector(2, 2, 2)).build().getHistogram().getNonAirBounds());
+    }
+
+    @Test
+    public void testDecode() {
+        var encoded = schematic.getHistogram().encode();
+        var size = schematic.getDimensions();
+
+        assertEquals(schematic.getHistogram(), Histogram.decode(schematic.getPalette(), encoded, size));
+
+        // a box outside of the schematic
+        var outside = encoded.clone();
+        outside[4] = 4;
+        assertNull(Histogram.decode(schematic.getPalette(), outside, size));
+
+        // counts which do not add up to the blocks
+        var counts = encoded.clone();
+        counts[0]++;
+        assertNull(Histogram.decode(schematic.getPalette(), counts, size));
+
+        assertNull(Histogram.decode(schematic.getPalette(), new int[3], size));
+    }
+
+    @Test
+    public void testReadInfo() throws IOException {
+        var file = File.createTempFile("histogram", ".nsc");
+        assertTrue(schematic.save(file, new CompactSchematic()));
+
+        var info = Schematic.readInfo(file, new CompactSchematic());
+        assertNotNull(info);
+        assertEquals(schematic.getHistogram(), info.histogram());
+        assertEquals(schematic.getHistogram(), Schematic.load(file, new CompactSchematic()).getHistogram());
+    }
+}
@@ -1,8 +1,11 @@
 package dev.efnilite.neoschematic;
 
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -59,4 +62,97 @@ public class JsonSchematicTest extends TestRunner {
         assertEquals(93, (int) idxs.get(4));
     }
 
+    @Test
+    public void testPasteFromFile() throws IOException {
+        placeBlocks();
+
+        var file = new File(UUID.randomUUID() + ".json");
+        Schematic.create(new Location(getWorld(), 0, 0, 0), new Location(getWorld(), 1, 0, 1)).save(file);
+
+        resetBlocks();
+
+        var placed = Schematic.pasteFromFile(file, new JsonSchematic(), new Location(getWorld(), 0, 0, 0),
+                PasteOptions.defaults().withSkipAir(true));
+
+        assertEquals(3, placed);
+        assertEquals(Material.GRASS_BLOCK, getWorld().getBlockAt(0, 0, 0).getType());
+        assertEquals(Material.STONE, getWorld().getBlockAt(1, 0, 0).getType());
+        assertEquals(Material.CHEST, getWorld().getBlockAt(0, 0, 1).getType());
+        assertEquals(Material.STONE_STAIRS, getWorld().getBlockAt(1, 0, 1).getType());
+
+        resetBlocks();
+    }
+
+    @Test
+    public void testCreateToFile() {
+        placeBlocks();
+
+        var file = new File(UUID.randomUUID() + ".json");
+        var pos1 = new Location(getWorld(), 0, 0, 0);
+        var pos2 = new Location(getWorld(), 1, 0, 1);
+
+        assertTrue(Schematic.createToFile(pos1, pos2, file, new JsonSchematic()));
+        assertEquals(Schematic.create(pos1, pos2), Schematic.load(file));
+
+        resetBlocks();
+    }
+
+    @Test
+    public void testReadInfo() {
+        placeBlocks();
+
+        var file = new File(UUID.randomUUID() + ".json");
+        var schematic = Schematic.create(
+                new Location(getWorld(), 0, 0, 0),
+                new Location(getWorld(), 1, 0, 1),
+                Map.of("waypoint", List.of(new Location(getWorld(), 10, 5, -10))));
+        schematic.save(file);
+
+        assertEquals(SchematicInfo.of(schematic), Schematic.readInfo(file));
+
+        resetBlocks();
+    }
+
+    @Test
+    public void testArchive() throws IOException {
+        placeBlocks();
+
+        var file = new File(UUID.randomUUID() + ".nspack");
+        var schematic = Schematic.create(new Location(getWorld(), 0, 0, 0), new Location(getWorld(), 1, 0, 1));
+
+        try (var appender = SchematicArchive.append(file)) {
+            appender.add("first", schematic, "json");
+            appender.add("second", schematic, "zip");
+        }
+        try (var appender = SchematicArchive.append(file)) {
+            appender.remove("first");
+        }
+        SchematicArchive.compact(file);
+
+        try (var archive = SchematicArchive.open(file)) {
+            assertEquals(1, archive.getEntries().size());
+            assertEquals(schematic, archive.load("second"));
+        }
+
+        resetBlocks();
+    }
+
+    @Test
+    public void testBlockStorage() {
+        placeBlocks();
+
+        var file = new File(UUID.randomUUID() + ".json");
+        var pos1 = new Location(getWorld(), 0, 0, 0);
+        var pos2 = new Location(getWorld(), 1, 0, 1);
+        var schematic = Schematic.create(pos1, pos2);
+        schematic.save(file);
+
+        try (var direct = Schematic.create(pos1, pos2, BlockStorage.direct());
+             var mapped = Schematic.load(file, new JsonSchematic(), BlockStorage.mapped())) {
+            assertEquals(schematic, direct);
+            assertEquals(schematic, mapped);
+        }
+
+        resetBlocks();
+    }
 }
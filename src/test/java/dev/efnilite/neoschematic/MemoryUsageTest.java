@@ -0,0 +1,44 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryUsageTest {
+
+    private static final int BLOCKS = 16 * 16 * 16;
+
+    @Test
+    public void testHeap() {
+        var usage = new SchematicBuilder(new Vector(16, 16, 16)).build().getMemoryUsage();
+
+        assertTrue(usage.blocks() >= 2 * BLOCKS);
+        assertTrue(usage.blocks() < 4 * BLOCKS);
+        assertEquals(0, usage.offHeapBlocks());
+        assertEquals(usage.palette() + usage.blocks() + usage.waypoints() + usage.derived(), usage.heap());
+    }
+
+    @Test
+    public void testDirect() {
+        var schematic = new SchematicBuilder(new Vector(16, 16, 16)).build();
+
+        try (var direct = schematic.withStorage(BlockStorage.direct())) {
+            assertEquals(2 * BLOCKS, direct.getMemoryUsage().offHeapBlocks());
+            assertTrue(direct.getMemoryUsage().blocks() < schematic.getMemoryUsage().blocks());
+        }
+    }
+
+    @Test
+    public void testTracking() {
+        var schematic = new SchematicBuilder(new Vector(16, 16, 16)).build();
+
+        assertSame(schematic, schematic.trackMemoryUsage());
+
+        var total = Schematic.getTotalMemoryUsage();
+        assertTrue(total.total() >= schematic.getMemoryUsage().total());
+        assertTrue(total.blocks() >= schematic.getMemoryUsage().blocks());
+    }
+}
@@ -0,0 +1,61 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class MigrationTest {
+
+    private static final String CURRENT_VERSION = Bukkit.getBukkitVersion().split("-")[0];
+
+    @Test
+    public void testRename() {
+        var palette = Migration.createPalette("1.16.5", List.of("minecraft:grass_path", "minecraft:stone"));
+
+        assertEquals(Material.DIRT_PATH, palette.get(0).getMaterial());
+        assertEquals(Material.STONE, palette.get(1).getMaterial());
+        assertEquals(CURRENT_VERSION, Migration.getVersion("1.16.5"));
+    }
+
+    @Test
+    public void testProperties() {
+        var palette = Migration.createPalette("1.15.2",
+                List.of("minecraft:cobblestone_wall[east=true,north=false,south=true,up=true,waterlogged=false,west=false]"));
+
+        assertEquals(Bukkit.createBlockData("minecraft:cobblestone_wall[east=low,north=none,south=low,up=true,waterlogged=false,west=none]"),
+                palette.get(0));
+    }
+
+    @Test
+    public void testUnchanged() {
+        assertEquals(CURRENT_VERSION, Migration.getVersion(CURRENT_VERSION));
+        // unknown versions are kept, since it is not known which changes apply
+        assertEquals("snapshot", Migration.getVersion("snapshot"));
+        assertEquals(Material.STONE, Migration.createPalette("snapshot", List.of("minecraft:stone")).get(0).getMaterial());
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        var file = Path.of(UUID.randomUUID() + ".json");
+        Files.writeString(file, """
+                {"dataVersion": 2, "minecraftVersion": "1.16.5", "dimensions": [0, 0, 0],
+                "palette": ["minecraft:grass_path"], "blocks": "#", "waypoints": {}}""");
+
+        try {
+            var schematic = Schematic.load(file.toFile());
+
+            assertEquals(Material.DIRT_PATH, schematic.getBlockData(0, 0, 0).getMaterial());
+            assertEquals(CURRENT_VERSION, schematic.getMinecraftVersion());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
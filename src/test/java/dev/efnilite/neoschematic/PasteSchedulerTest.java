@@ -0,0 +1,53 @@
+package dev.efnilite.neoschematic;
+
+import dev.efnilite.neoschematic.test.TestPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PasteSchedulerTest {
+
+    @Test
+    public void testPriority() {
+        var world = Bukkit.getWorlds().get(0);
+        var scheduler = new PasteScheduler(JavaPlugin.getPlugin(TestPlugin.class));
+        // the high priority job needs 4 turns, while the low priority job needs 1024
+        var small = new SchematicBuilder(new Vector(32, 16, 16)).build();
+        var large = new SchematicBuilder(new Vector(64, 32, 64)).build();
+
+        var low = scheduler.submit(large, new Location(world, 0, 200, 0), PasteOptions.defaults(),
+                PasteScheduler.LOW_PRIORITY);
+        var high = scheduler.submit(small, new Location(world, 128, 200, 0), PasteOptions.defaults(),
+                PasteScheduler.HIGH_PRIORITY);
+        assertEquals(2, scheduler.getStats().queueDepth());
+
+        tickUntilDone(scheduler, high);
+        assertEquals(8192L, (long) high.join());
+        assertFalse(low.isDone());
+        assertEquals(1, scheduler.getStats().queueDepth());
+        assertEquals(1, scheduler.getStats().completedJobs());
+        // turns alternate, so the low priority job has had a turn before every turn of the high priority job
+        var placedByLow = scheduler.getStats().totalBlocks() - 8192;
+        assertTrue(placedByLow >= 4 * 128 && placedByLow < 64 * 32 * 64);
+
+        tickUntilDone(scheduler, low);
+        assertEquals(64L * 32 * 64, (long) low.join());
+        assertEquals(0, scheduler.getStats().queueDepth());
+        assertEquals(2, scheduler.getStats().completedJobs());
+        assertEquals(8192 + 64 * 32 * 64, scheduler.getStats().totalBlocks());
+    }
+
+    private void tickUntilDone(PasteScheduler scheduler, CompletableFuture<Long> future) {
+        for (int tick = 0; tick < 10_000 && !future.isDone(); tick++) {
+            scheduler.tick();
+        }
+    }
+}
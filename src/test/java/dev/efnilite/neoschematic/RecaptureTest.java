@@ -0,0 +1,70 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RecaptureTest {
+
+    // crosses a chunk border, so more than one section is fingerprinted
+    private static final int MIN_X = 252, MAX_X = 259;
+
+    private World getWorld() {
+        return Bukkit.getWorlds().get(0);
+    }
+
+    private void fill(Material material) {
+        for (int x = MIN_X; x <= MAX_X; x++) {
+            for (int z = 0; z < 4; z++) {
+                getWorld().getBlockAt(x, 0, z).setType(material);
+            }
+        }
+    }
+
+    @Test
+    public void testRecapture() {
+        fill(Material.STONE);
+
+        try {
+            var pos1 = new Location(getWorld(), MIN_X, 0, 0);
+            var pos2 = new Location(getWorld(), MAX_X, 1, 3);
+            var previous = Schematic.create(pos1, pos2);
+
+            assertSame(previous, Schematic.recapture(previous, pos1, pos2));
+
+            getWorld().getBlockAt(MAX_X, 0, 0).setType(Material.DIAMOND_BLOCK);
+            var changed = Schematic.recapture(previous, pos1, pos2);
+
+            assertNotSame(previous, changed);
+            assertEquals(Schematic.create(pos1, pos2), changed);
+            assertEquals(Material.DIAMOND_BLOCK, changed.getBlockData(MAX_X - MIN_X, 0, 0).getMaterial());
+            assertEquals(Material.STONE, changed.getBlockData(0, 0, 0).getMaterial());
+
+            // the fingerprints of the new capture are cached, so recapturing it again finds nothing changed
+            assertSame(changed, Schematic.recapture(changed, pos1, pos2));
+        } finally {
+            fill(Material.AIR);
+        }
+    }
+
+    @Test
+    public void testDifferentDimensions() {
+        fill(Material.STONE);
+
+        try {
+            var previous = Schematic.create(new Location(getWorld(), MIN_X, 0, 0), new Location(getWorld(), MAX_X, 0, 3));
+            var pos1 = new Location(getWorld(), MIN_X, 0, 0);
+            var pos2 = new Location(getWorld(), MIN_X + 1, 0, 1);
+
+            assertEquals(Schematic.create(pos1, pos2), Schematic.recapture(previous, pos1, pos2));
+        } finally {
+            fill(Material.AIR);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SchematicBatchTest {
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        var directory = Files.createTempDirectory("batch");
+        var schematics = new LinkedHashMap<File, Schematic>();
+        for (int i = 0; i < 8; i++) {
+            schematics.put(directory.resolve(i + ".json").toFile(), new SchematicBuilder(new Vector(i + 1, 2, 2)).build());
+        }
+
+        var saved = Schematic.saveAll(schematics, new JsonSchematic());
+        saved.getFuture().join();
+        assertEquals(8, saved.getStats().completed());
+        assertEquals(0, saved.getStats().failed());
+        assertTrue(saved.getStats().bytes() > 0);
+
+        var loaded = Schematic.loadAll(schematics.keySet(), new JsonSchematic());
+        loaded.getFuture().join();
+        assertEquals(List.copyOf(schematics.keySet()), List.copyOf(loaded.getFutures().keySet()));
+        assertEquals(saved.getStats().bytes(), loaded.getStats().bytes());
+
+        for (var entry : schematics.entrySet()) {
+            assertEquals(entry.getValue(), loaded.getFutures().get(entry.getKey()).join());
+        }
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        var directory = Files.createTempDirectory("batch");
+        var valid = directory.resolve("valid.json").toFile();
+        var missing = directory.resolve("missing.json").toFile();
+        var schematic = new SchematicBuilder(new Vector(2, 2, 2)).build();
+        assertTrue(schematic.save(valid));
+
+        var loaded = Schematic.loadAll(List.of(missing, valid), new JsonSchematic());
+
+        // one file fails on its own
+        assertEquals(schematic, loaded.getFutures().get(valid).join());
+        try {
+            loaded.getFutures().get(missing).join();
+            fail("Loaded a missing file");
+        } catch (CompletionException expected) {
+
+        }
+
+        try {
+            loaded.getFuture().join();
+            fail("Batch with a failed file completed normally");
+        } catch (CompletionException expected) {
+
+        }
+        assertEquals(1, loaded.getStats().completed());
+        assertEquals(1, loaded.getStats().failed());
+    }
+}
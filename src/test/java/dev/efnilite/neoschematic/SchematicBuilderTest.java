@@ -0,0 +1,83 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SchematicBuilderTest {
+
+    @Test
+    public void testBuild() {
+        var builder = new SchematicBuilder(new Vector(2, 1, 2))
+                .fill(0, 0, 0, 1, 0, 1, Material.STONE.createBlockData())
+                .set(0, 0, 0, Material.GRASS_BLOCK.createBlockData())
+                .set(0, 0, 1, Material.CHEST.createBlockData())
+                .addWaypoint("spawn", new Location(null, 1, 0, 1));
+        assertEquals(Material.STONE, builder.get(1, 0, 1).getMaterial());
+
+        var schematic = builder.build();
+
+        assertEquals(new Vector(2, 1, 2), schematic.getDimensions());
+        assertEquals(3, schematic.getPalette().size());
+        assertEquals(Material.GRASS_BLOCK, schematic.getBlockData(0, 0, 0).getMaterial());
+        assertEquals(Material.STONE, schematic.getBlockData(1, 0, 0).getMaterial());
+        assertEquals(Material.CHEST, schematic.getBlockData(0, 0, 1).getMaterial());
+        assertEquals(Material.STONE, schematic.getBlockData(1, 0, 1).getMaterial());
+        assertEquals(1, schematic.getWaypoints().get("spawn").size());
+    }
+
+    @Test
+    public void testDefaultsToAir() {
+        var schematic = new SchematicBuilder(new Vector(3, 3, 3)).build();
+
+        assertEquals(1, schematic.getPalette().size());
+        assertTrue(schematic.getBlockData(2, 2, 2).getMaterial().isAir());
+    }
+
+    @Test
+    public void testStampSkipsAir() {
+        var stamp = new SchematicBuilder(new Vector(2, 1, 1))
+                .set(1, 0, 0, Material.OAK_LOG.createBlockData())
+                .build();
+
+        var schematic = new SchematicBuilder(new Vector(3, 1, 1))
+                .fill(0, 0, 0, 2, 0, 0, Material.STONE.createBlockData())
+                .stamp(stamp, new Vector(1, 0, 0), true)
+                .build();
+
+        assertEquals(Material.STONE, schematic.getBlockData(1, 0, 0).getMaterial());
+        assertEquals(Material.OAK_LOG, schematic.getBlockData(2, 0, 0).getMaterial());
+    }
+
+    @Test
+    public void testBounds() {
+        var builder = new SchematicBuilder(new Vector(2, 2, 2));
+
+        try {
+            builder.set(2, 0, 0, Material.STONE.createBlockData());
+            fail("Set outside of the schematic");
+        } catch (IndexOutOfBoundsException expected) {
+
+        }
+
+        try {
+            new SchematicBuilder(new Vector(2048, 2048, 2048));
+            fail("Built a schematic with more than Integer.MAX_VALUE blocks");
+        } catch (IllegalArgumentException expected) {
+
+        }
+
+        builder.build();
+        try {
+            builder.build();
+            fail("Built twice");
+        } catch (IllegalStateException expected) {
+
+        }
+    }
+}
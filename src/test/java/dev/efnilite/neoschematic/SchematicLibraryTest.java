@@ -0,0 +1,51 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Bukkit;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SchematicLibraryTest {
+
+    @Test
+    public void testRefreshSkipsUnreadableFiles() throws IOException {
+        var directory = Files.createTempDirectory("library");
+        var small = new SchematicBuilder(new Vector(2, 1, 2))
+                .fill(0, 0, 0, 1, 0, 1, Bukkit.createBlockData("minecraft:stone"))
+                .build();
+        var large = new SchematicBuilder(new Vector(3, 2, 3)).build();
+
+        Files.createDirectories(directory.resolve("nested"));
+        assertTrue(small.save(directory.resolve("small.json").toFile(), new JsonSchematic()));
+        assertTrue(large.save(directory.resolve("nested/large.nsc").toFile(), new CompactSchematic()));
+        Files.writeString(directory.resolve("garbage.json"), "{ not a schematic", StandardCharsets.UTF_8);
+
+        var library = new SchematicLibrary(directory.toFile());
+        library.refresh().join();
+
+        assertEquals(2, library.getEntries().size());
+        assertEquals(Set.of("garbage.json"), library.getFailed());
+        assertNull(library.find("garbage"));
+
+        var entry = library.find("small");
+        assertNotNull(entry);
+        assertEquals(small.getContentHash(), entry.info().contentHash());
+        assertEquals(small, library.load(entry).join());
+        assertEquals(new Vector(3, 2, 3), library.find("large").info().dimensions());
+
+        // the index is written, so a new library does not read the valid files again
+        var reopened = new SchematicLibrary(directory.toFile());
+        reopened.refresh().join();
+        assertEquals(2, reopened.getEntries().size());
+        assertEquals(Set.of("garbage.json"), reopened.getFailed());
+    }
+}
@@ -0,0 +1,76 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SectionedSchematicTest extends TestRunner {
+
+    @Override
+    protected Schematic getSchematic() {
+        placeBlocks();
+
+        var saved = Schematic.create(
+                new Location(getWorld(), 0, 0, 0),
+                new Location(getWorld(), 1, 0, 1),
+                Map.of("waypoint", List.of(new Location(getWorld(), 10, 5, -10))));
+
+        var type = new SectionedSchematic(new SectionPack(new File("sections")));
+        UUID uuid = UUID.randomUUID();
+        saved.save(uuid + ".nsm", type);
+
+        assertTrue(Files.exists(Path.of(uuid + ".nsm")));
+
+        resetBlocks();
+
+        return Schematic.load(uuid + ".nsm", type);
+    }
+
+    @Test
+    public void testSharedSections() throws IOException {
+        var directory = Files.createTempDirectory("sectioned");
+        var pack = new SectionPack(directory.resolve("sections").toFile());
+        var type = new SectionedSchematic(pack);
+
+        // the first section of both schematics only contains stone
+        var wide = new SchematicBuilder(new Vector(32, 16, 16))
+                .fill(0, 0, 0, 15, 15, 15, Material.STONE.createBlockData())
+                .build();
+        var cube = new SchematicBuilder(new Vector(16, 16, 16))
+                .fill(0, 0, 0, 15, 15, 15, Material.STONE.createBlockData())
+                .build();
+
+        var wideFile = directory.resolve("wide.nsm").toFile();
+        var cubeFile = directory.resolve("cube.nsm").toFile();
+        assertTrue(wide.save(wideFile, type));
+        assertTrue(cube.save(cubeFile, type));
+
+        // stone is stored once, next to the air section of the wide schematic
+        assertEquals(2, countSections(pack));
+        assertEquals(wide, Schematic.load(wideFile, type));
+
+        Files.delete(wideFile.toPath());
+        assertEquals(1, pack.prune(List.of(cubeFile)));
+        assertEquals(1, countSections(pack));
+
+        assertEquals(cube, Schematic.load(cubeFile, new SectionedSchematic(new SectionPack(pack.getDirectory()))));
+    }
+
+    private long countSections(SectionPack pack) throws IOException {
+        try (var files = Files.walk(pack.getDirectory().toPath())) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".section")).count();
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package dev.efnilite.neoschematic;
 
+import dev.efnilite.neoschematic.test.TestPlugin;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.util.BoundingBox;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public abstract class TestRunner {
 
+    // unloaded chunks are only unloaded on the next tick, so every lazy paste uses a new chunk
+    private static int lazyPastes = 0;
+
     protected abstract Schematic getSchematic();
 
     private final Schematic schematic = getSchematic();
@@ -71,6 +79,48 @@ public abstract class TestRunner {
         resetBlocks();
     }
 
+    @Test
+    public void testPasteClip() {
+        var clip = BoundingBox.of(getWorld().getBlockAt(0, 0, 0), getWorld().getBlockAt(1, 0, 0));
+        var blocks = schematic.paste(new Location(getWorld(), 0, 0, 0), PasteOptions.defaults().withClip(clip));
+
+        assertEquals(2, blocks.size());
+        assertEquals(Material.GRASS_BLOCK, getWorld().getBlockAt(0, 0, 0).getType());
+        assertEquals(Material.AIR, getWorld().getBlockAt(1, 0, 0).getType());
+        assertEquals(Material.STONE, getWorld().getBlockAt(0, 0, 1).getType());
+        assertEquals(Material.STONE, getWorld().getBlockAt(1, 0, 1).getType());
+
+        resetBlocks();
+    }
+
+    @Test
+    public void testPasteLazily() {
+        var world = getWorld();
+        // far from spawn, so the chunk is only loaded by this test
+        var x = 4096 + 16 * lazyPastes++;
+        var z = 4096;
+        assertFalse(world.isChunkLoaded(x >> 4, z >> 4));
+
+        var paste = schematic.pasteLazily(new Location(world, x, 0, z), PasteOptions.defaults(), 0,
+                JavaPlugin.getPlugin(TestPlugin.class));
+        try {
+            assertEquals(1, paste.getTotalChunks());
+            assertEquals(0, paste.getPastedChunks());
+
+            world.loadChunk(x >> 4, z >> 4);
+
+            assertEquals(1, paste.getPastedChunks());
+            assertTrue(paste.getFuture().isDone());
+            assertEquals(Material.GRASS_BLOCK, world.getBlockAt(x, 0, z).getType());
+            assertEquals(Material.AIR, world.getBlockAt(x + 1, 0, z).getType());
+            assertEquals(Material.CHEST, world.getBlockAt(x, 0, z + 1).getType());
+            assertEquals(Material.STONE_STAIRS, world.getBlockAt(x + 1, 0, z + 1).getType());
+        } finally {
+            paste.cancel();
+            world.unloadChunk(x >> 4, z >> 4, false);
+        }
+    }
+
     @Test
     public void testWaypoint() {
         var waypoint = schematic.getWaypoint(new Location(getWorld(), -3, 0, 5), "waypoint");
@@ -0,0 +1,65 @@
+package dev.efnilite.neoschematic;
+
+import org.bukkit.Location;
+import org.bukkit.util.BoundingBox;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class WaypointsTest {
+
+    private final Waypoints waypoints = Waypoints.of(Map.of(
+            "checkpoint", List.of(
+                    new Location(null, 0, 0, 0),
+                    new Location(null, 40, 2, 40),
+                    new Location(null, 41, 2, 40, 90, 10)),
+            "spawn", List.of(new Location(null, 5, 1, 5))));
+
+    @Test
+    public void testNearest() {
+        assertEquals(0, waypoints.nearest("checkpoint", 5, 0, 5));
+        assertEquals(2, waypoints.nearest("checkpoint", 45, 2, 40));
+        assertEquals(-1, waypoints.nearest("missing", 0, 0, 0));
+    }
+
+    @Test
+    public void testWithin() {
+        var result = new int[3];
+        assertEquals(2, waypoints.within("checkpoint", new BoundingBox(30, 0, 30, 50, 5, 50), result));
+
+        var found = Arrays.copyOf(result, 2);
+        Arrays.sort(found);
+        assertArrayEquals(new int[]{1, 2}, found);
+
+        assertEquals(0, waypoints.within("checkpoint", new BoundingBox(100, 0, 100, 110, 5, 110), result));
+        assertEquals(0, waypoints.within("missing", new BoundingBox(0, 0, 0, 50, 5, 50), result));
+
+        // only the first waypoints are written when the result is too small
+        var small = new int[1];
+        assertEquals(3, waypoints.within("checkpoint", new BoundingBox(-1, -1, -1, 50, 5, 50), small));
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        waypoints.write(new DataOutputStream(bytes));
+
+        var read = Waypoints.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(waypoints, read);
+        assertEquals(3, read.size("checkpoint"));
+        assertEquals(90, read.getYaw("checkpoint", 2), 0);
+        assertEquals(10, read.getPitch("checkpoint", 2), 0);
+        assertEquals(1, read.nearest("checkpoint", 39, 2, 39));
+    }
+}